@@ -3,7 +3,49 @@
 #
 # SPDX-License-Identifier: Apache-2.0
 
-java -jar /flow-diff.jar $1 $2 >> /github/workspace/diff.txt
+JAVA_OPTIONS=""
+if [ -f /flow-diff.jsa ]; then
+  JAVA_OPTIONS="-XX:SharedArchiveFile=/flow-diff.jsa"
+fi
+
+CACHE_OPTIONS=""
+if [ -n "$6" ]; then
+  CACHE_OPTIONS="--cache-dir /github/workspace/$6"
+fi
+
+FILTER_OPTIONS=""
+if [ -n "$7" ]; then
+  FILTER_OPTIONS="$FILTER_OPTIONS --include-types $7"
+fi
+if [ -n "$8" ]; then
+  FILTER_OPTIONS="$FILTER_OPTIONS --exclude-types $8"
+fi
+if [ -n "$9" ]; then
+  FILTER_OPTIONS="$FILTER_OPTIONS --include-components $9"
+fi
+if [ -n "${10}" ]; then
+  FILTER_OPTIONS="$FILTER_OPTIONS --exclude-components ${10}"
+fi
+
+IMPACT_OPTIONS=""
+if [ -n "${12}" ]; then
+  IMPACT_OPTIONS="--impact ${12}"
+fi
+
+REPORT_OPTIONS=""
+if [ -n "${13}" ]; then
+  REPORT_OPTIONS="--max-bytes ${13}"
+fi
+if [ -n "${14}" ]; then
+  REPORT_OPTIONS="$REPORT_OPTIONS --details-file /github/workspace/${14}"
+fi
+
+FLOW_OPTIONS="$1 $2"
+if [ "${11}" = "true" ]; then
+  FLOW_OPTIONS="--scan --root-a $1 --root-b $2"
+fi
+
+java $JAVA_OPTIONS -jar /flow-diff.jar $CACHE_OPTIONS $FILTER_OPTIONS $IMPACT_OPTIONS $REPORT_OPTIONS $FLOW_OPTIONS >> /github/workspace/diff.txt
 
 OUTPUT=$(cat /github/workspace/diff.txt | sed 's/"/\\"/g' | sed ':a;N;$!ba;s/\n/\\n/g')
 
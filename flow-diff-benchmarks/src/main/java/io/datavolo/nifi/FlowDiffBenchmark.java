@@ -0,0 +1,141 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.registry.flow.FlowSnapshotContainer;
+import org.apache.nifi.registry.flow.RegisteredFlowSnapshot;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks each phase of a diff separately: loading a snapshot, comparing two snapshots, sorting the
+ * differences and rendering the report.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlowDiffBenchmark {
+
+    @Param({"1000", "10000"})
+    public int processors;
+
+    @Param({"0.01", "0.1"})
+    public double changeDensity;
+
+    private FlowDiff flowDiff;
+    private FlowDiff prunedFlowDiff;
+    private FlowDiff parallelFlowDiff;
+    private FlowDiff jsonLinesFlowDiff;
+    private FlowDiff sarifFlowDiff;
+    private Path flowFile;
+    private RegisteredFlowSnapshot snapshotA;
+    private RegisteredFlowSnapshot snapshotB;
+    private Set<FlowDifference> differences;
+    private FlowIndex indexA;
+    private FlowIndex indexB;
+    private DiffResult result;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final FlowGenerator generator = new FlowGenerator()
+                .depth(2)
+                .childGroups(4)
+                .totalProcessors(processors)
+                .parameters(processors / 10)
+                .changeDensity(changeDensity);
+        final FlowGenerator.FlowPair pair = generator.generatePair();
+
+        flowDiff = new FlowDiff();
+        prunedFlowDiff = FlowDiff.builder().pruneUnchangedGroups(true).build();
+        parallelFlowDiff = FlowDiff.builder().parallelism(Runtime.getRuntime().availableProcessors()).build();
+        jsonLinesFlowDiff = FlowDiff.builder().format(DiffRenderer.JSON_LINES).build();
+        sarifFlowDiff = FlowDiff.builder().format(DiffRenderer.SARIF).build();
+        flowFile = Files.createTempFile("flow-diff-benchmark", ".json");
+        Files.write(flowFile, generator.toJson(pair.getSnapshotB()));
+
+        snapshotA = pair.getSnapshotA();
+        snapshotB = pair.getSnapshotB();
+        differences = flowDiff.compare(snapshotA, snapshotB);
+        indexA = new FlowIndex(snapshotA.getFlowContents());
+        indexB = new FlowIndex(snapshotB.getFlowContents());
+        result = flowDiff.diff(snapshotA, snapshotB);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        parallelFlowDiff.close();
+        Files.deleteIfExists(flowFile);
+    }
+
+    @Benchmark
+    public FlowSnapshotContainer getFlowContainer() throws IOException {
+        return flowDiff.load(flowFile.toString());
+    }
+
+    @Benchmark
+    public Set<FlowDifference> compare() {
+        return flowDiff.compare(snapshotA, snapshotB);
+    }
+
+    @Benchmark
+    public Set<FlowDifference> comparePruned() {
+        return prunedFlowDiff.compare(snapshotA, snapshotB);
+    }
+
+    @Benchmark
+    public Set<FlowDifference> compareParallel() {
+        return parallelFlowDiff.compare(snapshotA, snapshotB);
+    }
+
+    @Benchmark
+    public List<FlowDifference> sort() {
+        return DifferenceOrder.sort(differences, indexA, indexB);
+    }
+
+    @Benchmark
+    public void render() {
+        final PrintWriter out = new PrintWriter(Writer.nullWriter());
+        MarkdownRenderer.printDiff(out, result);
+        out.flush();
+    }
+
+    @Benchmark
+    public void renderJsonLines() throws IOException {
+        jsonLinesFlowDiff.getRenderer().render(Writer.nullWriter(), result, null);
+    }
+
+    @Benchmark
+    public void renderSarif() throws IOException {
+        final Writer out = Writer.nullWriter();
+        final DiffRenderer.Report report = sarifFlowDiff.getRenderer().start(out);
+        sarifFlowDiff.getRenderer().render(report, result, null);
+        sarifFlowDiff.getRenderer().finish(report);
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.nifi.flow.Bundle;
+import org.apache.nifi.flow.ConnectableComponent;
+import org.apache.nifi.flow.ConnectableComponentType;
+import org.apache.nifi.flow.Position;
+import org.apache.nifi.flow.ScheduledState;
+import org.apache.nifi.flow.VersionedConnection;
+import org.apache.nifi.flow.VersionedParameter;
+import org.apache.nifi.flow.VersionedParameterContext;
+import org.apache.nifi.flow.VersionedProcessGroup;
+import org.apache.nifi.flow.VersionedProcessor;
+import org.apache.nifi.flow.VersionedPropertyDescriptor;
+import org.apache.nifi.registry.flow.RegisteredFlow;
+import org.apache.nifi.registry.flow.RegisteredFlowSnapshot;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Generates pairs of synthetic flow snapshots. The first snapshot is a tree of process groups holding chains of
+ * processors; the second one is a copy of the first in which a fraction of the processors and parameters, given by
+ * the change density, has been added, removed, edited or moved. Generation is deterministic for a given seed.
+ */
+public class FlowGenerator {
+
+    static final String PARAMETER_CONTEXT = "Generated Parameters";
+
+    private static final Bundle BUNDLE = new Bundle("org.apache.nifi", "nifi-standard-nar", "2.0.0");
+    private static final String PROCESSOR_TYPE = "org.apache.nifi.processors.attributes.UpdateAttribute";
+
+    private final ObjectMapper objectMapper;
+
+    private int processorsPerGroup = 20;
+    private int childGroups = 3;
+    private int depth = 2;
+    private int propertiesPerProcessor = 10;
+    private int parameters = 100;
+    private double changeDensity = 0.05;
+    private long seed = 42;
+
+    private Random random;
+
+    public FlowGenerator() {
+        objectMapper = new ObjectMapper();
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    public FlowGenerator processorsPerGroup(final int processorsPerGroup) {
+        this.processorsPerGroup = processorsPerGroup;
+        return this;
+    }
+
+    public FlowGenerator childGroups(final int childGroups) {
+        this.childGroups = childGroups;
+        return this;
+    }
+
+    public FlowGenerator depth(final int depth) {
+        this.depth = depth;
+        return this;
+    }
+
+    public FlowGenerator propertiesPerProcessor(final int propertiesPerProcessor) {
+        this.propertiesPerProcessor = propertiesPerProcessor;
+        return this;
+    }
+
+    public FlowGenerator parameters(final int parameters) {
+        this.parameters = parameters;
+        return this;
+    }
+
+    public FlowGenerator changeDensity(final double changeDensity) {
+        this.changeDensity = changeDensity;
+        return this;
+    }
+
+    public FlowGenerator seed(final long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    // sets processorsPerGroup so that the whole tree holds roughly the given number of processors
+    public FlowGenerator totalProcessors(final int totalProcessors) {
+        int groups = 0;
+        int groupsAtLevel = 1;
+        for (int level = 0; level <= depth; level++) {
+            groups += groupsAtLevel;
+            groupsAtLevel *= childGroups;
+        }
+        this.processorsPerGroup = Math.max(1, totalProcessors / groups);
+        return this;
+    }
+
+    public RegisteredFlowSnapshot generate() {
+        random = new Random(seed);
+
+        final RegisteredFlow flow = new RegisteredFlow();
+        flow.setIdentifier("generated");
+        flow.setName("Generated Flow");
+
+        final VersionedProcessGroup root = generateGroup(null, "Generated Flow", depth);
+        root.setParameterContextName(PARAMETER_CONTEXT);
+
+        final VersionedParameterContext context = new VersionedParameterContext();
+        context.setName(PARAMETER_CONTEXT);
+        context.setInheritedParameterContexts(new ArrayList<>());
+        final Set<VersionedParameter> contextParameters = new HashSet<>();
+        for (int i = 0; i < parameters; i++) {
+            contextParameters.add(parameter("param-" + i, "value-" + i, i % 20 == 0));
+        }
+        context.setParameters(contextParameters);
+
+        final Map<String, VersionedParameterContext> contexts = new HashMap<>();
+        contexts.put(PARAMETER_CONTEXT, context);
+
+        final RegisteredFlowSnapshot snapshot = new RegisteredFlowSnapshot();
+        snapshot.setFlow(flow);
+        snapshot.setFlowContents(root);
+        snapshot.setParameterContexts(contexts);
+        snapshot.setExternalControllerServices(new HashMap<>());
+        snapshot.setParameterProviders(new HashMap<>());
+        snapshot.setFlowEncodingVersion("1.0");
+        return snapshot;
+    }
+
+    public FlowPair generatePair() {
+        final RegisteredFlowSnapshot snapshotA = generate();
+        final RegisteredFlowSnapshot snapshotB = copy(snapshotA);
+        random = new Random(seed + 1);
+        mutateGroup(snapshotB.getFlowContents());
+        mutateParameters(snapshotB.getParameterContexts().get(PARAMETER_CONTEXT));
+        return new FlowPair(snapshotA, snapshotB);
+    }
+
+    public byte[] toJson(final RegisteredFlowSnapshot snapshot) {
+        try {
+            return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(snapshot);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private RegisteredFlowSnapshot copy(final RegisteredFlowSnapshot snapshot) {
+        try {
+            return objectMapper.readValue(objectMapper.writeValueAsBytes(snapshot), RegisteredFlowSnapshot.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private VersionedProcessGroup generateGroup(final String parentId, final String name, final int remainingDepth) {
+        final VersionedProcessGroup group = new VersionedProcessGroup();
+        group.setIdentifier(nextId());
+        group.setGroupIdentifier(parentId);
+        group.setName(name);
+        group.setPosition(new Position(random.nextInt(5000), random.nextInt(5000)));
+        group.setFlowFileConcurrency("UNBOUNDED");
+        group.setFlowFileOutboundPolicy("STREAM_WHEN_AVAILABLE");
+        group.setDefaultFlowFileExpiration("0 sec");
+        group.setDefaultBackPressureObjectThreshold(10000L);
+        group.setDefaultBackPressureDataSizeThreshold("1 GB");
+
+        VersionedProcessor previous = null;
+        for (int i = 0; i < processorsPerGroup; i++) {
+            final VersionedProcessor processor = processor(group.getIdentifier(), name + " - Processor " + i);
+            group.getProcessors().add(processor);
+            if (previous != null) {
+                group.getConnections().add(connection(group.getIdentifier(), previous, processor));
+            }
+            previous = processor;
+        }
+
+        if (remainingDepth > 0) {
+            for (int i = 0; i < childGroups; i++) {
+                group.getProcessGroups().add(generateGroup(group.getIdentifier(), name + " / Group " + i, remainingDepth - 1));
+            }
+        }
+        return group;
+    }
+
+    private VersionedProcessor processor(final String groupId, final String name) {
+        final VersionedProcessor processor = new VersionedProcessor();
+        processor.setIdentifier(nextId());
+        processor.setGroupIdentifier(groupId);
+        processor.setName(name);
+        processor.setType(PROCESSOR_TYPE);
+        processor.setBundle(BUNDLE);
+        processor.setPosition(new Position(random.nextInt(5000), random.nextInt(5000)));
+        processor.setSchedulingPeriod("1 min");
+        processor.setSchedulingStrategy("TIMER_DRIVEN");
+        processor.setExecutionNode("ALL");
+        processor.setPenaltyDuration("30 sec");
+        processor.setYieldDuration("1 sec");
+        processor.setBulletinLevel("WARN");
+        processor.setRunDurationMillis(0L);
+        processor.setConcurrentlySchedulableTaskCount(1);
+        processor.setAutoTerminatedRelationships(new HashSet<>());
+        processor.setRetriedRelationships(new HashSet<>());
+        processor.setRetryCount(10);
+        processor.setBackoffMechanism("PENALIZE_FLOWFILE");
+        processor.setMaxBackoffPeriod("10 mins");
+        processor.setStyle(new HashMap<>());
+        processor.setScheduledState(ScheduledState.ENABLED);
+
+        final Map<String, String> properties = new HashMap<>();
+        final Map<String, VersionedPropertyDescriptor> descriptors = new HashMap<>();
+        for (int i = 0; i < propertiesPerProcessor; i++) {
+            final String key = "property-" + i;
+            // one property out of four references a parameter
+            final String value = parameters > 0 && i % 4 == 0 ? "#{param-" + random.nextInt(parameters) + "}" : "value-" + random.nextInt(1000);
+            properties.put(key, value);
+            descriptors.put(key, descriptor(key));
+        }
+        processor.setProperties(properties);
+        processor.setPropertyDescriptors(descriptors);
+        return processor;
+    }
+
+    private static VersionedPropertyDescriptor descriptor(final String name) {
+        final VersionedPropertyDescriptor descriptor = new VersionedPropertyDescriptor();
+        descriptor.setName(name);
+        descriptor.setDisplayName(name);
+        descriptor.setDynamic(true);
+        return descriptor;
+    }
+
+    private VersionedConnection connection(final String groupId, final VersionedProcessor source, final VersionedProcessor destination) {
+        final VersionedConnection connection = new VersionedConnection();
+        connection.setIdentifier(nextId());
+        connection.setGroupIdentifier(groupId);
+        connection.setName("");
+        connection.setSource(connectable(source));
+        connection.setDestination(connectable(destination));
+        connection.setSelectedRelationships(new HashSet<>(List.of("success")));
+        connection.setBackPressureObjectThreshold(10000L);
+        connection.setBackPressureDataSizeThreshold("1 GB");
+        connection.setFlowFileExpiration("0 sec");
+        connection.setPrioritizers(new ArrayList<>());
+        connection.setBends(new ArrayList<>());
+        connection.setLoadBalanceStrategy("DO_NOT_LOAD_BALANCE");
+        connection.setLoadBalanceCompression("DO_NOT_COMPRESS");
+        connection.setPartitioningAttribute("");
+        connection.setLabelIndex(0);
+        connection.setzIndex(0L);
+        return connection;
+    }
+
+    private static ConnectableComponent connectable(final VersionedProcessor processor) {
+        final ConnectableComponent connectable = new ConnectableComponent();
+        connectable.setId(processor.getIdentifier());
+        connectable.setGroupId(processor.getGroupIdentifier());
+        connectable.setName(processor.getName());
+        connectable.setType(ConnectableComponentType.PROCESSOR);
+        connectable.setComments("");
+        return connectable;
+    }
+
+    private static VersionedParameter parameter(final String name, final String value, final boolean sensitive) {
+        final VersionedParameter parameter = new VersionedParameter();
+        parameter.setName(name);
+        parameter.setValue(sensitive ? null : value);
+        parameter.setSensitive(sensitive);
+        parameter.setDescription("");
+        return parameter;
+    }
+
+    private void mutateGroup(final VersionedProcessGroup group) {
+        final List<VersionedProcessor> processors = new ArrayList<>(group.getProcessors());
+        processors.sort(Comparator.comparing(VersionedProcessor::getIdentifier));
+        for (VersionedProcessor processor : processors) {
+            if (random.nextDouble() >= changeDensity) {
+                continue;
+            }
+            switch (random.nextInt(4)) {
+            case 0: {
+                final VersionedProcessor added = processor(group.getIdentifier(), processor.getName() + " (added)");
+                group.getProcessors().add(added);
+                group.getConnections().add(connection(group.getIdentifier(), processor, added));
+                break;
+            }
+            case 1: {
+                group.getProcessors().remove(processor);
+                group.getConnections().removeIf(c -> c.getSource().getId().equals(processor.getIdentifier())
+                        || c.getDestination().getId().equals(processor.getIdentifier()));
+                break;
+            }
+            case 2: {
+                final String key = "property-" + random.nextInt(Math.max(1, propertiesPerProcessor));
+                processor.getProperties().put(key, "edited-" + random.nextInt(1000));
+                processor.getPropertyDescriptors().putIfAbsent(key, descriptor(key));
+                break;
+            }
+            default: {
+                final Position position = processor.getPosition();
+                processor.setPosition(new Position(position.getX() + 50, position.getY() + 50));
+                break;
+            }
+            }
+        }
+
+        final List<VersionedProcessGroup> children = new ArrayList<>(group.getProcessGroups());
+        children.sort(Comparator.comparing(VersionedProcessGroup::getIdentifier));
+        for (VersionedProcessGroup child : children) {
+            mutateGroup(child);
+        }
+    }
+
+    private void mutateParameters(final VersionedParameterContext context) {
+        final List<VersionedParameter> existing = new ArrayList<>(context.getParameters());
+        existing.sort(Comparator.comparing(VersionedParameter::getName));
+        for (VersionedParameter parameter : existing) {
+            if (random.nextDouble() >= changeDensity) {
+                continue;
+            }
+            switch (random.nextInt(3)) {
+            case 0:
+                context.getParameters().add(parameter(parameter.getName() + "-added", "added", false));
+                break;
+            case 1:
+                context.getParameters().remove(parameter);
+                break;
+            default:
+                if (!parameter.isSensitive()) {
+                    context.getParameters().remove(parameter);
+                    parameter.setValue(parameter.getValue() + "-edited");
+                    context.getParameters().add(parameter);
+                }
+                break;
+            }
+        }
+    }
+
+    private String nextId() {
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+
+    public static final class FlowPair {
+        private final RegisteredFlowSnapshot snapshotA;
+        private final RegisteredFlowSnapshot snapshotB;
+
+        FlowPair(final RegisteredFlowSnapshot snapshotA, final RegisteredFlowSnapshot snapshotB) {
+            this.snapshotA = snapshotA;
+            this.snapshotB = snapshotB;
+        }
+
+        public RegisteredFlowSnapshot getSnapshotA() {
+            return snapshotA;
+        }
+
+        public RegisteredFlowSnapshot getSnapshotB() {
+            return snapshotB;
+        }
+    }
+}
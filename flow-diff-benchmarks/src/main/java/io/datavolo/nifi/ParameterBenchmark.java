@@ -0,0 +1,74 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.registry.flow.RegisteredFlowSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks parameter-heavy flows, where a large share of the parameters of one big context changes at once, as
+ * when parameters are synchronized from a secrets manager: indexing the parameter contexts and rendering the report.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParameterBenchmark {
+
+    @Param({"1000", "10000"})
+    public int parameters;
+
+    @Param({"0.5"})
+    public double changeDensity;
+
+    private RegisteredFlowSnapshot snapshotA;
+    private RegisteredFlowSnapshot snapshotB;
+    private DiffResult result;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final FlowGenerator.FlowPair pair = new FlowGenerator()
+                .depth(1)
+                .childGroups(2)
+                .totalProcessors(100)
+                .parameters(parameters)
+                .changeDensity(changeDensity)
+                .generatePair();
+
+        snapshotA = pair.getSnapshotA();
+        snapshotB = pair.getSnapshotB();
+        result = new FlowDiff().diff(snapshotA, snapshotB);
+    }
+
+    @Benchmark
+    public ParameterIndex index() {
+        return new ParameterIndex(snapshotB.getParameterContexts());
+    }
+
+    @Benchmark
+    public void render() {
+        final PrintWriter out = new PrintWriter(Writer.nullWriter());
+        MarkdownRenderer.printDiff(out, result);
+        out.flush();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.nifi.registry.flow.FlowSnapshotContainer;
+import org.apache.nifi.registry.flow.RegisteredFlowSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the databind loading of a snapshot with the loading from the binary snapshot cache, both end to end
+ * (hashing the file and decoding the entry) and for the decoding alone. Run with {@code -prof gc} to get the
+ * allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotLoadBenchmark {
+
+    @Param({"1000", "10000"})
+    public int processors;
+
+    private FlowDiff databind;
+    private FlowDiff binaryCache;
+    private Path cacheDirectory;
+    private SnapshotCache snapshotCache;
+    private byte[] smileEntry;
+    private Path flowFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final FlowGenerator generator = new FlowGenerator().depth(2).childGroups(4).totalProcessors(processors);
+        final byte[] json = generator.toJson(generator.generate());
+
+        flowFile = Files.createTempFile("flow-diff-benchmark", ".json");
+        Files.write(flowFile, json);
+
+        databind = new FlowDiff();
+
+        cacheDirectory = Files.createTempDirectory("flow-diff-benchmark-cache");
+        binaryCache = FlowDiff.builder().snapshotCache(cacheDirectory, Long.MAX_VALUE).build();
+        // the first load fills the cache
+        binaryCache.load(flowFile.toString());
+
+        snapshotCache = new SnapshotCache(new CacheDirectory(cacheDirectory, Long.MAX_VALUE));
+        smileEntry = snapshotCache.encode(databind.load(flowFile.toString()).getFlowSnapshot());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(flowFile);
+        try (Stream<Path> entries = Files.list(cacheDirectory)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                Files.deleteIfExists(entry);
+            }
+        }
+        Files.deleteIfExists(cacheDirectory);
+    }
+
+    @Benchmark
+    public FlowSnapshotContainer databind() throws IOException {
+        return databind.load(flowFile.toString());
+    }
+
+    @Benchmark
+    public FlowSnapshotContainer binaryCache() throws IOException {
+        return binaryCache.load(flowFile.toString());
+    }
+
+    @Benchmark
+    public RegisteredFlowSnapshot smileDecode() throws IOException {
+        return snapshotCache.decode(smileEntry);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Prints the parse time and the peak heap usage of loading a large generated snapshot with each loader.
+ * JMH does not report peak heap, so this runs outside of it:
+ * {@code java -cp benchmarks.jar io.datavolo.nifi.SnapshotLoadFootprint 50000}
+ */
+public class SnapshotLoadFootprint {
+
+    public static void main(final String[] args) throws IOException {
+        final int processors = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        final FlowGenerator generator = new FlowGenerator().depth(2).childGroups(4).totalProcessors(processors);
+        final Path flowFile = Files.createTempFile("flow-diff-footprint", ".json");
+        try {
+            Files.write(flowFile, generator.toJson(generator.generate()));
+            System.out.printf("%d processors, %d MB of JSON%n", processors, Files.size(flowFile) / (1024 * 1024));
+
+            measure("databind", new FlowDiff(), flowFile);
+            measure("deduplicated", FlowDiff.builder().deduplicate(true).build(), flowFile);
+
+            final Path cacheDirectory = Files.createTempDirectory("flow-diff-footprint-cache");
+            final FlowDiff binaryCache = FlowDiff.builder().snapshotCache(cacheDirectory, Long.MAX_VALUE).build();
+            measure("binary cache", binaryCache, flowFile);
+            try (Stream<Path> entries = Files.list(cacheDirectory)) {
+                for (Path entry : (Iterable<Path>) entries::iterator) {
+                    System.out.printf("binary cache entry of %d MB%n", Files.size(entry) / (1024 * 1024));
+                    Files.delete(entry);
+                }
+            }
+            Files.delete(cacheDirectory);
+        } finally {
+            Files.deleteIfExists(flowFile);
+        }
+    }
+
+    static void measure(final String name, final FlowDiff flowDiff, final Path flowFile) throws IOException {
+        // first load only warms up the code paths
+        flowDiff.load(flowFile.toString());
+
+        System.gc();
+        final long baseline = usedHeap();
+        resetPeaks();
+        final long start = System.nanoTime();
+        final Object snapshot = flowDiff.load(flowFile.toString());
+        final long elapsed = System.nanoTime() - start;
+        final long peak = peakHeap();
+        System.gc();
+        final long retained = usedHeap() - baseline;
+
+        System.out.printf("%-12s parse %6d ms, peak heap %6d MB, retained %6d MB%n", name, elapsed / 1_000_000,
+                (peak - baseline) / (1024 * 1024), retained / (1024 * 1024));
+        if (snapshot == null) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static void resetPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
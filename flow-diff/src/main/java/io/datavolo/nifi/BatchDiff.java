@@ -0,0 +1,286 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares many pairs of flow definitions in a single JVM. Pairs are compared concurrently on a bounded
+ * pool and the combined report is written in the order of the input, whatever the completion order. The pairs
+ * come from a manifest, from a list of changed paths, or from a scan of two directory trees in which flow
+ * definitions are paired by relative path and files with identical contents are skipped without being parsed.
+ */
+class BatchDiff {
+
+    private final FlowDiff flowDiff;
+    private final FlowDiffOptions options;
+
+    BatchDiff(final FlowDiff flowDiff, final FlowDiffOptions options) {
+        this.flowDiff = flowDiff;
+        this.options = options;
+    }
+
+    void run(final PrintWriter out) throws IOException {
+        final int threads = options.getInt(FlowDiffOptions.THREADS, Runtime.getRuntime().availableProcessors());
+        final List<FlowPair> pairs;
+        if (options.has(FlowDiffOptions.BATCH)) {
+            pairs = readManifest(Paths.get(options.get(FlowDiffOptions.BATCH)));
+        } else if (options.has(FlowDiffOptions.SCAN)) {
+            final TreeScan scan = scanTrees(Paths.get(options.getRequired(FlowDiffOptions.ROOT_A)),
+                    Paths.get(options.getRequired(FlowDiffOptions.ROOT_B)), threads);
+            System.err.println("Scanned flow definitions: " + scan.describe());
+            pairs = scan.pairs;
+        } else {
+            pairs = readChangedPaths(Paths.get(options.get(FlowDiffOptions.CHANGED)),
+                    Paths.get(options.getRequired(FlowDiffOptions.ROOT_A)),
+                    Paths.get(options.getRequired(FlowDiffOptions.ROOT_B)));
+        }
+
+        final DiffRenderer renderer = flowDiff.getRenderer();
+        final DiffRenderer.Report report = renderer.start(out);
+        final List<String> sections = diffAll(flowDiff, report, pairs, threads);
+        for (int i = 0; i < sections.size(); i++) {
+            if (i > 0) {
+                out.print(renderer.separator());
+            }
+            out.print(sections.get(i));
+        }
+        renderer.finish(report);
+    }
+
+    static List<String> diffAll(final FlowDiff flowDiff, final DiffRenderer.Report report, final List<FlowPair> pairs, final int threads)
+            throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, pairs.size())));
+        try {
+            final List<Future<DiffRenderer.Section>> sections = new ArrayList<>(pairs.size());
+            for (FlowPair pair : pairs) {
+                sections.add(executor.submit(() -> diffPair(flowDiff, pair)));
+            }
+
+            final List<DiffRenderer.Section> prepared = new ArrayList<>(pairs.size());
+            for (Future<DiffRenderer.Section> section : sections) {
+                prepared.add(section.get());
+            }
+            return flowDiff.getRenderer().layout(report, prepared);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while comparing flows", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compare flows", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static DiffRenderer.Section diffPair(final FlowDiff flowDiff, final FlowPair pair) throws IOException {
+        final DiffRenderer renderer = flowDiff.getRenderer();
+        try {
+            if (pair.pathA == null || !Files.exists(pair.pathA)) {
+                return renderer.prepareMessage("The flow definition `" + pair.pathB + "` has been added", false);
+            } else if (pair.pathB == null || !Files.exists(pair.pathB)) {
+                return renderer.prepareMessage("The flow definition `" + pair.pathA + "` has been removed", false);
+            }
+            return flowDiff.prepare(pair.pathA.toString(), pair.pathB.toString());
+        } catch (IOException | RuntimeException e) {
+            return renderer.prepareMessage("Unable to compare `" + pair.pathA + "` with `" + pair.pathB + "`: " + e.getMessage(), true);
+        }
+    }
+
+    // one pair per line, the two paths being separated by a tab or by whitespace
+    static List<FlowPair> readManifest(final Path manifest) throws IOException {
+        final List<FlowPair> pairs = new ArrayList<>();
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            final String[] paths = trimmed.contains("\t") ? trimmed.split("\t") : trimmed.split("\\s+");
+            if (paths.length != 2) {
+                throw new IllegalArgumentException("Expected two flow definitions in manifest line: " + line);
+            }
+            pairs.add(new FlowPair(Paths.get(paths[0].trim()), Paths.get(paths[1].trim())));
+        }
+        return pairs;
+    }
+
+    // whitespace separated relative paths, as listed by the changed files of a pull request, keeping the JSON files
+    // that are a flow definition on either side
+    static List<FlowPair> readChangedPaths(final Path changed, final Path rootA, final Path rootB) throws IOException {
+        final List<FlowPair> pairs = new ArrayList<>();
+        for (String path : Files.readString(changed, StandardCharsets.UTF_8).trim().split("\\s+")) {
+            if (!path.endsWith(".json")) {
+                continue;
+            }
+            // as in a scan, a file that is not a flow definition on one side counts as missing from that side
+            final Path pathA = isFlow(rootA.resolve(path)) ? rootA.resolve(path) : null;
+            final Path pathB = isFlow(rootB.resolve(path)) ? rootB.resolve(path) : null;
+            if (pathA == null && pathB == null) {
+                System.err.println("Skipping `" + path + "`: not a flow definition");
+            } else {
+                pairs.add(new FlowPair(pathA, pathB));
+            }
+        }
+        return pairs;
+    }
+
+    private static boolean isFlow(final Path file) throws IOException {
+        return Files.isRegularFile(file) && FileSummary.read(file).flow;
+    }
+
+    // pairs of the flow definitions found in either tree that differ, in the order of their relative paths
+    static TreeScan scanTrees(final Path rootA, final Path rootB, final int threads) throws IOException {
+        final Map<String, Path> filesA = listJsonFiles(rootA);
+        final Map<String, Path> filesB = listJsonFiles(rootB);
+        final Set<String> relativePaths = new TreeSet<>(filesA.keySet());
+        relativePaths.addAll(filesB.keySet());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, relativePaths.size())));
+        try {
+            final Map<String, Future<FileSummary>> summariesA = new HashMap<>();
+            final Map<String, Future<FileSummary>> summariesB = new HashMap<>();
+            for (String relativePath : relativePaths) {
+                if (filesA.containsKey(relativePath)) {
+                    summariesA.put(relativePath, executor.submit(() -> FileSummary.read(filesA.get(relativePath))));
+                }
+                if (filesB.containsKey(relativePath)) {
+                    summariesB.put(relativePath, executor.submit(() -> FileSummary.read(filesB.get(relativePath))));
+                }
+            }
+
+            final TreeScan scan = new TreeScan();
+            for (String relativePath : relativePaths) {
+                final FileSummary summaryA = summariesA.containsKey(relativePath) ? summariesA.get(relativePath).get() : null;
+                final FileSummary summaryB = summariesB.containsKey(relativePath) ? summariesB.get(relativePath).get() : null;
+                // a file that is not a flow definition on one side counts as missing from that side
+                final boolean flowA = summaryA != null && summaryA.flow;
+                final boolean flowB = summaryB != null && summaryB.flow;
+                if (!flowA && !flowB) {
+                    continue;
+                }
+                if (!flowA) {
+                    scan.added++;
+                    scan.pairs.add(new FlowPair(null, rootB.resolve(relativePath)));
+                } else if (!flowB) {
+                    scan.removed++;
+                    scan.pairs.add(new FlowPair(rootA.resolve(relativePath), null));
+                } else if (summaryA.hash.equals(summaryB.hash)) {
+                    scan.unchanged++;
+                } else {
+                    scan.changed++;
+                    scan.pairs.add(new FlowPair(rootA.resolve(relativePath), rootB.resolve(relativePath)));
+                }
+            }
+            return scan;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning flow definitions", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to scan flow definitions", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // JSON files by path relative to the root, with forward slashes, leaving out hidden directories such as .git
+    private static Map<String, Path> listJsonFiles(final Path root) throws IOException {
+        final Map<String, Path> files = new HashMap<>();
+        if (!Files.isDirectory(root)) {
+            throw new IllegalArgumentException("Not a directory: " + root);
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
+                return !dir.equals(root) && dir.getFileName().toString().startsWith(".") ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && file.getFileName().toString().endsWith(".json")) {
+                    files.put(root.relativize(file).toString().replace(File.separatorChar, '/'), file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    static final class TreeScan {
+        final List<FlowPair> pairs = new ArrayList<>();
+        int unchanged;
+        int changed;
+        int added;
+        int removed;
+
+        String describe() {
+            return unchanged + " unchanged, " + changed + " changed, " + added + " added, " + removed + " removed";
+        }
+    }
+
+    // content hash of a file and whether it looks like a flow definition, from a single read of the file
+    static final class FileSummary {
+        private static final byte[] FLOW_MARKER = "\"flowContents\"".getBytes(StandardCharsets.UTF_8);
+
+        final String hash;
+        final boolean flow;
+
+        private FileSummary(final String hash, final boolean flow) {
+            this.hash = hash;
+            this.flow = flow;
+        }
+
+        static FileSummary read(final Path file) throws IOException {
+            final MessageDigest digest = CacheDirectory.newDigest();
+            final byte[] buffer = new byte[64 * 1024];
+            boolean flow = false;
+            int matched = 0;
+            try (InputStream in = Files.newInputStream(file)) {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, read);
+                    for (int i = 0; i < read && !flow; i++) {
+                        // the marker has no repeated prefix, so a mismatch can restart from its first byte
+                        matched = buffer[i] == FLOW_MARKER[matched] ? matched + 1 : (buffer[i] == FLOW_MARKER[0] ? 1 : 0);
+                        flow = matched == FLOW_MARKER.length;
+                    }
+                }
+            }
+            return new FileSummary(HexFormat.of().formatHex(digest.digest()), flow);
+        }
+    }
+
+    // either path is null when there is no flow definition on that side
+    static final class FlowPair {
+        final Path pathA;
+        final Path pathB;
+
+        FlowPair(final Path pathA, final Path pathB) {
+            this.pathA = pathA;
+            this.pathB = pathB;
+        }
+    }
+}
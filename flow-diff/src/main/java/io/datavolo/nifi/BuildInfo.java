@@ -0,0 +1,42 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+
+/**
+ * Versions of the tool and of the NiFi libraries it was built with, as written by Maven resource filtering.
+ */
+final class BuildInfo {
+
+    private static final Properties PROPERTIES = load();
+
+    private BuildInfo() {
+    }
+
+    static String getToolVersion() {
+        return PROPERTIES.getProperty("version", "unknown");
+    }
+
+    static String getNiFiVersion() {
+        return PROPERTIES.getProperty("nifi.api.version", "unknown") + "/" + PROPERTIES.getProperty("nifi.framework.version", "unknown");
+    }
+
+    private static Properties load() {
+        final Properties properties = new Properties();
+        try (InputStream in = BuildInfo.class.getResourceAsStream("/flow-diff.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read flow-diff.properties", e);
+        }
+        return properties;
+    }
+}
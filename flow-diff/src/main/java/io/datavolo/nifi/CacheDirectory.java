@@ -0,0 +1,192 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * A directory of cache entries, one file per key, bounded in size. Entries are written to a temporary file and
+ * moved in place, so concurrent writers and readers never see a partial entry. Reading an entry touches its
+ * modification time, and when the directory grows beyond its maximum size the least recently used entries are
+ * deleted first. The size of the directory is listed once and then kept up to date by the writes, the directory being
+ * listed again only when it has to be trimmed, which also accounts for the entries written by other processes.
+ */
+class CacheDirectory {
+
+    private static final String ENTRY_SUFFIX = ".entry";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    // total size of the entries, -1 until the directory is first listed
+    private long size = -1;
+
+    CacheDirectory(final Path directory, final long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    // the entry for the key, or null if there is none
+    byte[] read(final String key) throws IOException {
+        final Path entry = directory.resolve(key + ENTRY_SUFFIX);
+        final byte[] contents;
+        try {
+            contents = Files.readAllBytes(entry);
+        } catch (NoSuchFileException e) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            // evicted since it was read, the contents are still good
+        }
+        hits.incrementAndGet();
+        return contents;
+    }
+
+    boolean contains(final String key) {
+        return Files.exists(directory.resolve(key + ENTRY_SUFFIX));
+    }
+
+    void write(final String key, final byte[] contents) throws IOException {
+        Files.createDirectories(directory);
+        final Path entry = directory.resolve(key + ENTRY_SUFFIX);
+        final long replaced = sizeOf(entry);
+        final Path temporary = Files.createTempFile(directory, key, ".tmp");
+        try {
+            Files.write(temporary, contents);
+            try {
+                Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        written(contents.length - replaced);
+    }
+
+    private synchronized void written(final long bytes) throws IOException {
+        if (size < 0) {
+            size = sizeOf(listEntries());
+        } else {
+            size += bytes;
+        }
+        if (size > maxBytes) {
+            evict();
+        }
+    }
+
+    private void evict() throws IOException {
+        final List<Path> entries = listEntries();
+        size = sizeOf(entries);
+        if (size <= maxBytes) {
+            return;
+        }
+
+        entries.sort(Comparator.comparing(CacheDirectory::lastModified));
+        for (Path entry : entries) {
+            if (size <= maxBytes) {
+                break;
+            }
+            final long entrySize = sizeOf(entry);
+            if (Files.deleteIfExists(entry)) {
+                size -= entrySize;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private List<Path> listEntries() throws IOException {
+        final List<Path> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(ENTRY_SUFFIX)).forEach(entries::add);
+        }
+        return entries;
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    long getEvictions() {
+        return evictions.get();
+    }
+
+    String describeCounters() {
+        return hits.get() + " hits, " + misses.get() + " misses, " + evictions.get() + " evictions";
+    }
+
+    // hex encoded SHA-256 of the file contents
+    static String hash(final Path file) throws IOException {
+        final MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static long sizeOf(final List<Path> entries) {
+        long size = 0;
+        for (Path entry : entries) {
+            size += sizeOf(entry);
+        }
+        return size;
+    }
+
+    private static long sizeOf(final Path entry) {
+        try {
+            return Files.size(entry);
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static FileTime lastModified(final Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry);
+        } catch (NoSuchFileException e) {
+            return FileTime.fromMillis(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.nifi.registry.flow.RegisteredFlowSnapshot;
+
+/**
+ * Compares consecutive versions of one flow, given as an ordered list of files or as a git commit range for one
+ * file. Each version is parsed exactly once and the steps are compared concurrently as soon as both of their
+ * versions are loaded. A version is released as soon as the steps using it are done, and at most a few versions
+ * more than the number of threads are held at any time, whatever the length of the chain.
+ */
+class ChainDiff {
+
+    private final FlowDiff flowDiff;
+    private final FlowDiffOptions options;
+
+    ChainDiff(final FlowDiff flowDiff, final FlowDiffOptions options) {
+        this.flowDiff = flowDiff;
+        this.options = options;
+    }
+
+    void run(final PrintWriter out) throws IOException {
+        final List<ChainVersion> versions = options.has(FlowDiffOptions.GIT_RANGE)
+                ? readGitRange(Paths.get(""), options.get(FlowDiffOptions.GIT_RANGE), options.getPositional(0))
+                : readFiles(options.getPositionals());
+        final int threads = options.getInt(FlowDiffOptions.THREADS, Runtime.getRuntime().availableProcessors());
+        try {
+            final DiffRenderer renderer = flowDiff.getRenderer();
+            final DiffRenderer.Report report = renderer.start(out);
+            final List<String> sections = diffChain(flowDiff, report, versions, threads, options.has(FlowDiffOptions.END_TO_END));
+            for (int i = 0; i < sections.size(); i++) {
+                if (i > 0) {
+                    out.print(renderer.separator());
+                }
+                out.print(sections.get(i));
+            }
+            renderer.finish(report);
+        } finally {
+            for (ChainVersion version : versions) {
+                if (version.temporary) {
+                    Files.deleteIfExists(version.path);
+                }
+            }
+        }
+    }
+
+    // one section per step in the order of the chain, followed by the end to end section when requested
+    static List<String> diffChain(final FlowDiff flowDiff, final DiffRenderer.Report report, final List<ChainVersion> versions,
+            final int threads, final boolean endToEnd) throws IOException {
+        if (versions.size() < 2) {
+            throw new IllegalArgumentException("Expected at least two flow versions to compare");
+        }
+
+        final int last = versions.size() - 1;
+        final AtomicReferenceArray<RegisteredFlowSnapshot> snapshots = new AtomicReferenceArray<>(versions.size());
+        final AtomicInteger[] pendingUses = new AtomicInteger[versions.size()];
+        for (int i = 0; i <= last; i++) {
+            // every version is used by the step before and the step after it
+            final int uses = (i == 0 || i == last ? 1 : 2) + (endToEnd && (i == 0 || i == last) ? 1 : 0);
+            pendingUses[i] = new AtomicInteger(uses);
+        }
+
+        // each loaded version holds a permit until it is released, the first one being kept for the end to end diff
+        final int poolSize = Math.max(1, Math.min(threads, last));
+        final Semaphore loaded = new Semaphore(poolSize + 1 + (endToEnd ? 1 : 0));
+        final ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+        try {
+            final List<Future<DiffRenderer.Section>> steps = new ArrayList<>(last);
+            for (int i = 0; i <= last; i++) {
+                loaded.acquire();
+                snapshots.set(i, flowDiff.load(versions.get(i).path.toString()).getFlowSnapshot());
+                if (i > 0) {
+                    final int step = i;
+                    steps.add(executor.submit(() -> {
+                        // a step that fails still releases its versions, or loading the next ones would wait forever
+                        try {
+                            return diffStep(flowDiff, versions.get(step - 1), versions.get(step), snapshots.get(step - 1),
+                                    snapshots.get(step), versions.get(step - 1).label + " → " + versions.get(step).label);
+                        } finally {
+                            release(snapshots, pendingUses, loaded, step - 1);
+                            release(snapshots, pendingUses, loaded, step);
+                        }
+                    }));
+                }
+            }
+
+            final List<DiffRenderer.Section> prepared = new ArrayList<>(versions.size());
+            for (Future<DiffRenderer.Section> step : steps) {
+                prepared.add(step.get());
+            }
+            if (endToEnd) {
+                prepared.add(diffStep(flowDiff, versions.get(0), versions.get(last), snapshots.get(0), snapshots.get(last),
+                        "End to end: " + versions.get(0).label + " → " + versions.get(last).label));
+            }
+            return flowDiff.getRenderer().layout(report, prepared);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while comparing flow versions", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compare flow versions", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static DiffRenderer.Section diffStep(final FlowDiff flowDiff, final ChainVersion versionA, final ChainVersion versionB,
+            final RegisteredFlowSnapshot snapshotA, final RegisteredFlowSnapshot snapshotB, final String title) throws IOException {
+        try {
+            return flowDiff.prepare(flowDiff.diff(snapshotA, snapshotB), title);
+        } catch (IOException | RuntimeException e) {
+            return flowDiff.getRenderer().prepareMessage("Unable to compare `" + versionA.label + "` with `" + versionB.label + "`: " + e.getMessage(), true);
+        }
+    }
+
+    private static void release(final AtomicReferenceArray<RegisteredFlowSnapshot> snapshots, final AtomicInteger[] pendingUses,
+            final Semaphore loaded, final int index) {
+        if (pendingUses[index].decrementAndGet() == 0) {
+            snapshots.set(index, null);
+            loaded.release();
+        }
+    }
+
+    static List<ChainVersion> readFiles(final List<String> paths) {
+        final List<ChainVersion> versions = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            versions.add(new ChainVersion(path, Paths.get(path), false));
+        }
+        return versions;
+    }
+
+    // the file as of the first commit of the range, then after each commit of the range that changed it
+    static List<ChainVersion> readGitRange(final Path repository, final String range, final String file) throws IOException {
+        final String base = range.contains("..") ? range.substring(0, range.indexOf("..")) : null;
+        final List<String> commits = new ArrayList<>();
+        if (base != null && !base.isEmpty()) {
+            commits.add(git(repository, null, "rev-parse", "--short", base).trim());
+        }
+        for (String commit : git(repository, null, "log", "--reverse", "--format=%h", range, "--", file).split("\\R")) {
+            if (!commit.isBlank()) {
+                commits.add(commit.trim());
+            }
+        }
+
+        final List<ChainVersion> versions = new ArrayList<>(commits.size());
+        try {
+            for (String commit : commits) {
+                final Path version = Files.createTempFile("flow-diff-" + commit, ".json");
+                versions.add(new ChainVersion(commit + " " + file, version, true));
+                git(repository, version, "show", commit + ":./" + file);
+            }
+        } catch (IOException | RuntimeException e) {
+            for (ChainVersion version : versions) {
+                Files.deleteIfExists(version.path);
+            }
+            throw e;
+        }
+        return versions;
+    }
+
+    // the output of the git command, or an empty string when it is written to the given file
+    private static String git(final Path repository, final Path outputFile, final String... args) throws IOException {
+        final List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(args));
+        final ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(repository.toAbsolutePath().toFile())
+                .redirectError(ProcessBuilder.Redirect.INHERIT);
+        if (outputFile != null) {
+            builder.redirectOutput(outputFile.toFile());
+        }
+        final Process process = builder.start();
+        final String output;
+        try (InputStream in = process.getInputStream()) {
+            output = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException("Command failed: " + String.join(" ", command));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running: " + String.join(" ", command), e);
+        }
+        return output;
+    }
+
+    static final class ChainVersion {
+        final String label;
+        final Path path;
+        final boolean temporary;
+
+        ChainVersion(final String label, final Path path, final boolean temporary) {
+            this.label = label;
+            this.path = path;
+            this.temporary = temporary;
+        }
+    }
+}
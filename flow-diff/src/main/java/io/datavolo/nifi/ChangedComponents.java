@@ -0,0 +1,29 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import org.apache.nifi.flow.VersionedComponent;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+
+/**
+ * The component a difference is reported on, shared by the renderers and the summaries so that they all name the
+ * same component and resolve it in the same snapshot.
+ */
+final class ChangedComponents {
+
+    private ChangedComponents() {
+    }
+
+    // the component after the change, or before the change when it has been removed
+    static VersionedComponent component(final FlowDifference diff) {
+        return diff.getComponentB() == null ? diff.getComponentA() : diff.getComponentB();
+    }
+
+    // index of the snapshot the component of the difference is taken from
+    static FlowIndex index(final DiffResult result, final FlowDifference diff) {
+        return diff.getComponentB() == null ? result.getIndexA() : result.getIndexB();
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.nifi.flow.ComponentType;
+import org.apache.nifi.flow.VersionedProcessGroup;
+import org.apache.nifi.registry.flow.RegisteredFlowSnapshot;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Wall time, allocated bytes and peak heap of each phase of a run (loading, pruning, comparing, indexing, sorting
+ * and rendering), plus the number of components per type in the compared snapshots and the number of differences per
+ * type, summed over every pair compared by the run. Allocated bytes are those of the thread running the phase, so
+ * they leave out the workers of a parallel comparison. Peak heap is the highest used heap sampled while the phase was
+ * running, whatever ran concurrently with it: the heap is sampled when a phase starts and ends and every
+ * {@value #SAMPLE_INTERVAL_MILLIS} ms in between, so a peak shorter than that may be missed. The metrics are written
+ * as JSON, or as a Prometheus textfile when the file name ends with {@code .prom}.
+ */
+final class DiffMetrics {
+
+    // used when no metrics are recorded, so that phases can always be closed
+    static final Phase NO_PHASE = () -> { };
+
+    private static final String METRIC_PREFIX = "flow_diff_";
+    static final long SAMPLE_INTERVAL_MILLIS = 10;
+
+    private final com.sun.management.ThreadMXBean threads = threadBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final Map<String, PhaseStats> phases = new LinkedHashMap<>();
+    private final Set<OpenPhase> openPhases = new HashSet<>();
+    private final Map<String, Long> componentsA = new TreeMap<>();
+    private final Map<String, Long> componentsB = new TreeMap<>();
+    private final Map<String, Long> differences = new TreeMap<>();
+    private Thread sampler;
+
+    Phase start(final String name) {
+        final OpenPhase phase = new OpenPhase(name);
+        synchronized (this) {
+            // each phase keeps its own peak, so phases running concurrently do not reset each other's
+            phase.peakHeapBytes = usedHeapBytes();
+            openPhases.add(phase);
+            if (sampler == null) {
+                sampler = Thread.ofPlatform().daemon().name("flow-diff-metrics").start(this::sampleHeap);
+            }
+            notifyAll();
+        }
+        phase.startNanos = System.nanoTime();
+        phase.startAllocated = allocatedBytes();
+        return phase;
+    }
+
+    void countComponents(final RegisteredFlowSnapshot snapshotA, final RegisteredFlowSnapshot snapshotB) {
+        final Map<String, Long> countsA = countComponents(snapshotA);
+        final Map<String, Long> countsB = countComponents(snapshotB);
+        synchronized (this) {
+            countsA.forEach((type, count) -> componentsA.merge(type, count, Long::sum));
+            countsB.forEach((type, count) -> componentsB.merge(type, count, Long::sum));
+        }
+    }
+
+    synchronized void countDifferences(final Collection<FlowDifference> flowDifferences) {
+        for (FlowDifference difference : flowDifferences) {
+            differences.merge(difference.getDifferenceType().name(), 1L, Long::sum);
+        }
+    }
+
+    void write(final Path file) throws IOException {
+        final Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        // written next to the target and moved in place, as textfile collectors may read it at any time
+        final Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                if (file.getFileName().toString().endsWith(".prom")) {
+                    writePrometheus(out);
+                } else {
+                    writeJson(out);
+                }
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    synchronized void writeJson(final Writer out) throws IOException {
+        final Map<String, Object> phaseValues = new LinkedHashMap<>();
+        phases.forEach((name, stats) -> {
+            final Map<String, Object> values = new LinkedHashMap<>();
+            values.put("count", stats.count);
+            values.put("wallTimeMillis", stats.wallNanos / 1_000_000.0);
+            values.put("allocatedBytes", stats.allocatedBytes);
+            values.put("peakHeapBytes", stats.peakHeapBytes);
+            phaseValues.put(name, values);
+        });
+        final Map<String, Object> components = new LinkedHashMap<>();
+        components.put("a", componentsA);
+        components.put("b", componentsB);
+
+        final Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("toolVersion", BuildInfo.getToolVersion());
+        metrics.put("phases", phaseValues);
+        metrics.put("components", components);
+        metrics.put("differences", differences);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(out, metrics);
+    }
+
+    synchronized void writePrometheus(final Writer out) throws IOException {
+        header(out, "phase_runs_total", "counter", "Number of times each phase ran");
+        for (Map.Entry<String, PhaseStats> phase : phases.entrySet()) {
+            sample(out, "phase_runs_total", "phase=\"" + phase.getKey() + "\"", phase.getValue().count);
+        }
+        header(out, "phase_seconds_total", "counter", "Wall time spent in each phase");
+        for (Map.Entry<String, PhaseStats> phase : phases.entrySet()) {
+            sample(out, "phase_seconds_total", "phase=\"" + phase.getKey() + "\"", phase.getValue().wallNanos / 1e9);
+        }
+        header(out, "phase_allocated_bytes_total", "counter", "Bytes allocated by the thread running each phase");
+        for (Map.Entry<String, PhaseStats> phase : phases.entrySet()) {
+            sample(out, "phase_allocated_bytes_total", "phase=\"" + phase.getKey() + "\"", phase.getValue().allocatedBytes);
+        }
+        header(out, "phase_peak_heap_bytes", "gauge", "Highest heap usage seen during each phase");
+        for (Map.Entry<String, PhaseStats> phase : phases.entrySet()) {
+            sample(out, "phase_peak_heap_bytes", "phase=\"" + phase.getKey() + "\"", phase.getValue().peakHeapBytes);
+        }
+        header(out, "components", "gauge", "Number of components per type in the compared flows");
+        for (Map.Entry<String, Long> count : componentsA.entrySet()) {
+            sample(out, "components", "side=\"a\",type=\"" + count.getKey() + "\"", count.getValue());
+        }
+        for (Map.Entry<String, Long> count : componentsB.entrySet()) {
+            sample(out, "components", "side=\"b\",type=\"" + count.getKey() + "\"", count.getValue());
+        }
+        header(out, "differences", "gauge", "Number of reported differences per type");
+        for (Map.Entry<String, Long> count : differences.entrySet()) {
+            sample(out, "differences", "type=\"" + count.getKey() + "\"", count.getValue());
+        }
+    }
+
+    synchronized Map<String, Long> getDifferenceCounts() {
+        return new TreeMap<>(differences);
+    }
+
+    synchronized long getPhaseCount(final String name) {
+        final PhaseStats stats = phases.get(name);
+        return stats == null ? 0 : stats.count;
+    }
+
+    private synchronized void end(final OpenPhase phase, final long wallNanos, final long allocatedBytes) {
+        openPhases.remove(phase);
+        final PhaseStats stats = phases.computeIfAbsent(phase.name, key -> new PhaseStats());
+        stats.count++;
+        stats.wallNanos += wallNanos;
+        stats.allocatedBytes += Math.max(0, allocatedBytes);
+        stats.peakHeapBytes = Math.max(stats.peakHeapBytes, Math.max(phase.peakHeapBytes, usedHeapBytes()));
+    }
+
+    // raises the peak of the open phases with the used heap, waiting while no phase is open
+    private synchronized void sampleHeap() {
+        try {
+            while (true) {
+                while (openPhases.isEmpty()) {
+                    wait();
+                }
+                final long used = usedHeapBytes();
+                for (OpenPhase open : openPhases) {
+                    open.peakHeapBytes = Math.max(open.peakHeapBytes, used);
+                }
+                wait(SAMPLE_INTERVAL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long allocatedBytes() {
+        return threads == null ? 0 : threads.getCurrentThreadAllocatedBytes();
+    }
+
+    private long usedHeapBytes() {
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static Map<String, Long> countComponents(final RegisteredFlowSnapshot snapshot) {
+        final Map<String, Long> counts = new TreeMap<>();
+        if (snapshot.getParameterContexts() != null) {
+            counts.merge(ComponentType.PARAMETER_CONTEXT.name(), (long) snapshot.getParameterContexts().size(), Long::sum);
+        }
+        if (snapshot.getFlowContents() == null) {
+            return counts;
+        }
+
+        final Deque<VersionedProcessGroup> groups = new ArrayDeque<>();
+        groups.push(snapshot.getFlowContents());
+        while (!groups.isEmpty()) {
+            final VersionedProcessGroup group = groups.pop();
+            counts.merge(ComponentType.PROCESS_GROUP.name(), 1L, Long::sum);
+            count(counts, ComponentType.PROCESSOR, group.getProcessors());
+            count(counts, ComponentType.CONNECTION, group.getConnections());
+            count(counts, ComponentType.INPUT_PORT, group.getInputPorts());
+            count(counts, ComponentType.OUTPUT_PORT, group.getOutputPorts());
+            count(counts, ComponentType.FUNNEL, group.getFunnels());
+            count(counts, ComponentType.LABEL, group.getLabels());
+            count(counts, ComponentType.CONTROLLER_SERVICE, group.getControllerServices());
+            count(counts, ComponentType.REMOTE_PROCESS_GROUP, group.getRemoteProcessGroups());
+            if (group.getProcessGroups() != null) {
+                group.getProcessGroups().forEach(groups::push);
+            }
+        }
+        return counts;
+    }
+
+    private static void count(final Map<String, Long> counts, final ComponentType type, final Collection<?> components) {
+        if (components != null && !components.isEmpty()) {
+            counts.merge(type.name(), (long) components.size(), Long::sum);
+        }
+    }
+
+    private static void header(final Writer out, final String name, final String type, final String help) throws IOException {
+        out.write("# HELP " + METRIC_PREFIX + name + " " + help + "\n");
+        out.write("# TYPE " + METRIC_PREFIX + name + " " + type + "\n");
+    }
+
+    private static void sample(final Writer out, final String name, final String labels, final Number value) throws IOException {
+        out.write(METRIC_PREFIX + name + "{" + labels + "} " + value + "\n");
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean;
+            }
+        }
+        return null;
+    }
+
+    interface Phase extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final class OpenPhase implements Phase {
+        final String name;
+        long startNanos;
+        long startAllocated;
+        long peakHeapBytes;
+
+        OpenPhase(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void close() {
+            end(this, System.nanoTime() - startNanos, allocatedBytes() - startAllocated);
+        }
+    }
+
+    private static final class PhaseStats {
+        long count;
+        long wallNanos;
+        long allocatedBytes;
+        long peakHeapBytes;
+    }
+}
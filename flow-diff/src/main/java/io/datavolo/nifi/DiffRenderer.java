@@ -0,0 +1,129 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes comparison results in one output format. A report is {@link #start(Writer) started}, then gets one section
+ * per compared pair of flows, written by {@link #render(Report, DiffResult, String)} or
+ * {@link #message(Writer, String, boolean)} and separated by {@link #separator()}, and is then
+ * {@link #finish(Report) finished}. Reports with many sections {@link #prepare(DiffResult, String) prepare} them
+ * concurrently and then {@link #layout(Report, List) lay them out} together in the order of the report, which lets a
+ * renderer share a budget across sections. Whatever a renderer keeps until a report is finished is held by the
+ * {@link Report}, so that one renderer can write several reports at the same time. Renderers write each difference as
+ * soon as it is read, to whatever buffering the writer has.
+ */
+public interface DiffRenderer {
+
+    String MARKDOWN = "markdown";
+    String JSON_LINES = "jsonl";
+    String SARIF = "sarif";
+
+    default Report start(final Writer out) throws IOException {
+        return new Report(out);
+    }
+
+    // title is an optional heading for the section, such as the versions of a step in a chain
+    void render(Writer out, DiffResult result, String title) throws IOException;
+
+    // a section of a report that was started
+    default void render(final Report report, final DiffResult result, final String title) throws IOException {
+        render(report.getWriter(), result, title);
+    }
+
+    // a section without differences, such as a flow definition that was added or could not be compared
+    void message(Writer out, String text, boolean error) throws IOException;
+
+    // a section rendered ahead of the report it belongs to, laid out with the other sections by layout(Report, List)
+    default Section prepare(final DiffResult result, final String title) throws IOException {
+        final StringWriter section = new StringWriter();
+        render(section, result, title);
+        return new TextSection(section.toString());
+    }
+
+    default Section prepareMessage(final String text, final boolean error) throws IOException {
+        final StringWriter section = new StringWriter();
+        message(section, text, error);
+        return new TextSection(section.toString());
+    }
+
+    // the text of each section, in the order of the report
+    default List<String> layout(final Report report, final List<Section> sections) throws IOException {
+        final List<String> texts = new ArrayList<>(sections.size());
+        for (Section section : sections) {
+            texts.add(((TextSection) section).getText());
+        }
+        return texts;
+    }
+
+    // a prepared section as kept in the result cache
+    default String encode(final Section section) throws IOException {
+        return ((TextSection) section).getText();
+    }
+
+    default Section decode(final String encoded) throws IOException {
+        return new TextSection(encoded);
+    }
+
+    default String separator() {
+        return "";
+    }
+
+    default void finish(final Report report) throws IOException {
+    }
+
+    static DiffRenderer forFormat(final String format) {
+        switch (format.toLowerCase(Locale.ROOT)) {
+        case MARKDOWN:
+            return new MarkdownRenderer();
+        case JSON_LINES:
+            return new JsonLinesRenderer();
+        case SARIF:
+            return new SarifRenderer();
+        default:
+            throw new IllegalArgumentException("Unknown output format " + format + ", expected one of markdown, jsonl or sarif");
+        }
+    }
+
+    /**
+     * A report being written, from its start to its finish.
+     */
+    class Report {
+        private final Writer out;
+
+        Report(final Writer out) {
+            this.out = out;
+        }
+
+        Writer getWriter() {
+            return out;
+        }
+    }
+
+    /**
+     * A section of a report, rendered before the sections around it are known.
+     */
+    interface Section {
+    }
+
+    final class TextSection implements Section {
+        private final String text;
+
+        TextSection(final String text) {
+            this.text = text;
+        }
+
+        String getText() {
+            return text;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.nifi.flow.VersionedParameterContext;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+
+/**
+ * Outcome of the comparison of two flow snapshots. Instances are not modified once built and can be
+ * shared between threads.
+ */
+public final class DiffResult {
+
+    private final String flowName;
+    private final Set<FlowDifference> differences;
+    private final Map<String, VersionedParameterContext> parameterContextsA;
+    private final Map<String, VersionedParameterContext> parameterContextsB;
+    private final ParameterIndex parametersA;
+    private final ParameterIndex parametersB;
+    private final FlowIndex indexA;
+    private final FlowIndex indexB;
+    private final Map<String, DownstreamImpact.Impact> impacts;
+
+    DiffResult(final String flowName, final Collection<FlowDifference> differences,
+            final Map<String, VersionedParameterContext> parameterContextsA,
+            final Map<String, VersionedParameterContext> parameterContextsB) {
+        this(flowName, differences, parameterContextsA, parameterContextsB, new FlowIndex(null), new FlowIndex(null), Collections.emptyMap());
+    }
+
+    DiffResult(final String flowName, final Collection<FlowDifference> differences,
+            final Map<String, VersionedParameterContext> parameterContextsA,
+            final Map<String, VersionedParameterContext> parameterContextsB,
+            final FlowIndex indexA, final FlowIndex indexB, final Map<String, DownstreamImpact.Impact> impacts) {
+        this.flowName = flowName;
+        // copy keeps the iteration order of the sorted differences
+        this.differences = Collections.unmodifiableSet(new LinkedHashSet<>(differences));
+        this.parameterContextsA = parameterContextsA == null ? Collections.emptyMap() : Collections.unmodifiableMap(parameterContextsA);
+        this.parameterContextsB = parameterContextsB == null ? Collections.emptyMap() : Collections.unmodifiableMap(parameterContextsB);
+        this.parametersA = new ParameterIndex(this.parameterContextsA);
+        this.parametersB = new ParameterIndex(this.parameterContextsB);
+        this.indexA = indexA;
+        this.indexB = indexB;
+        this.impacts = Collections.unmodifiableMap(impacts);
+    }
+
+    public String getFlowName() {
+        return flowName;
+    }
+
+    public Set<FlowDifference> getDifferences() {
+        return differences;
+    }
+
+    public Map<String, VersionedParameterContext> getParameterContextsA() {
+        return parameterContextsA;
+    }
+
+    public Map<String, VersionedParameterContext> getParameterContextsB() {
+        return parameterContextsB;
+    }
+
+    public ParameterIndex getParametersA() {
+        return parametersA;
+    }
+
+    public ParameterIndex getParametersB() {
+        return parametersB;
+    }
+
+    FlowIndex getIndexA() {
+        return indexA;
+    }
+
+    FlowIndex getIndexB() {
+        return indexB;
+    }
+
+    // downstream impact of the changed components by identifier, empty unless the analysis is enabled
+    Map<String, DownstreamImpact.Impact> getImpacts() {
+        return impacts;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of rendered diff reports, keyed by the content hashes of both flow definitions. The key also covers the
+ * tool version, the NiFi library versions, the entry format version and the options that change the report, so
+ * that upgrading any of them never returns a stale report. An entry is a small header followed by the gzipped
+ * section, as encoded by the renderer.
+ */
+class DiffResultCache {
+
+    static final int FORMAT_VERSION = 2;
+
+    // "FDRC"
+    private static final int MAGIC = 0x46445243;
+
+    private final CacheDirectory directory;
+    private final String salt;
+
+    DiffResultCache(final CacheDirectory directory, final String options) {
+        this.directory = directory;
+        this.salt = BuildInfo.getToolVersion() + "|" + BuildInfo.getNiFiVersion() + "|" + FORMAT_VERSION + "|" + options;
+    }
+
+    String key(final Path pathA, final Path pathB) throws IOException {
+        final MessageDigest digest = CacheDirectory.newDigest();
+        digest.update(CacheDirectory.hash(pathA).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '|');
+        digest.update(CacheDirectory.hash(pathB).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '|');
+        digest.update(salt.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // the cached report, or null on a miss or when the entry was written in another format
+    String get(final String key) throws IOException {
+        final byte[] entry = directory.read(key);
+        if (entry == null) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry))) {
+            if (in.readInt() != MAGIC || in.readUnsignedShort() != FORMAT_VERSION) {
+                return null;
+            }
+            return new String(new GZIPInputStream(in).readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    void put(final String key, final String report) throws IOException {
+        final ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(entry)) {
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(report.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        directory.write(key, entry.toByteArray());
+    }
+
+    CacheDirectory getDirectory() {
+        return directory;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.nifi.registry.flow.RegisteredFlowSnapshot;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Long-running HTTP endpoint on the loopback interface, so that the JVM, the object mapper and the comparison
+ * code stay warm across diffs. Each request is handled on its own virtual thread.
+ *
+ * <ul>
+ *   <li>{@code POST /diff?flowA=<path>&flowB=<path>} compares two flow definitions from the local file system</li>
+ *   <li>{@code POST /diff} with a body {@code {"flowA": <snapshot>, "flowB": <snapshot>}} compares the posted snapshots</li>
+ *   <li>{@code GET /health} returns {@code OK} once the server is warmed up</li>
+ * </ul>
+ *
+ * The report is the one the CLI writes for a single pair of flows, with the same format and byte budget. Requests
+ * that cannot be parsed or that name flow definitions that cannot be read get a 400, other failures a 500.
+ */
+class DiffServer {
+
+    private static final int WARM_UP_ITERATIONS = 200;
+    private static final String WARM_UP_FLOW_A = "/warm-up/flow-a.json";
+    private static final String WARM_UP_FLOW_B = "/warm-up/flow-b.json";
+
+    private final FlowDiff flowDiff;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    DiffServer(final FlowDiff flowDiff, final int port) throws IOException {
+        this.flowDiff = flowDiff;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/diff", this::handleDiff);
+        server.createContext("/health", exchange -> respond(exchange, 200, "OK"));
+    }
+
+    void start() {
+        warmUp();
+        server.start();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleDiff(final HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "Only POST is supported");
+            return;
+        }
+
+        // a request that cannot be parsed or names flow definitions that cannot be read is the client's error
+        final DiffRenderer.Section section;
+        try {
+            final Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            if (query.containsKey("flowA") && query.containsKey("flowB")) {
+                section = flowDiff.prepare(query.get("flowA"), query.get("flowB"));
+            } else {
+                section = flowDiff.prepare(diffBody(exchange.getRequestBody()), null);
+            }
+        } catch (IOException | InvalidPathException e) {
+            respond(exchange, 400, "Unable to compare flows: " + e.getMessage());
+            return;
+        } catch (RuntimeException e) {
+            respond(exchange, 500, "Unable to compare flows: " + e.getMessage());
+            return;
+        }
+
+        try {
+            respond(exchange, 200, contentType(flowDiff.getRenderer()), report(section));
+        } catch (IOException | RuntimeException e) {
+            respond(exchange, 500, "Unable to render the report: " + e.getMessage());
+        }
+    }
+
+    // the same report as the CLI for a single pair of flows, in the configured format and byte budget
+    private byte[] report(final DiffRenderer.Section section) throws IOException {
+        final DiffRenderer renderer = flowDiff.getRenderer();
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+        final PrintWriter out = new PrintWriter(new OutputStreamWriter(report, StandardCharsets.UTF_8));
+        final DiffRenderer.Report started = renderer.start(out);
+        out.print(renderer.layout(started, List.of(section)).get(0));
+        renderer.finish(started);
+        out.flush();
+        return report.toByteArray();
+    }
+
+    private DiffResult diffBody(final InputStream body) throws IOException {
+        RegisteredFlowSnapshot snapshotA = null;
+        RegisteredFlowSnapshot snapshotB = null;
+        final SnapshotDeduplicator deduplicator = flowDiff.newDeduplicator();
+        try (final JsonParser parser = flowDiff.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object with the fields flowA and flowB");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.currentName();
+                parser.nextToken();
+                if ("flowA".equals(field)) {
+                    snapshotA = flowDiff.readSnapshot(parser, deduplicator);
+                } else if ("flowB".equals(field)) {
+                    snapshotB = flowDiff.readSnapshot(parser, deduplicator);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (snapshotA == null || snapshotB == null) {
+            throw new IOException("Expected a JSON object with the fields flowA and flowB");
+        }
+        return flowDiff.diff(snapshotA, snapshotB);
+    }
+
+    // parses, compares and renders a sample flow the way requests do, so that this code is compiled before the first one
+    private void warmUp() {
+        try {
+            for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+                report(flowDiff.prepare(flowDiff.diff(readWarmUpFlow(WARM_UP_FLOW_A), readWarmUpFlow(WARM_UP_FLOW_B)), null));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private RegisteredFlowSnapshot readWarmUpFlow(final String resource) throws IOException {
+        final InputStream in = DiffServer.class.getResourceAsStream(resource);
+        if (in == null) {
+            throw new IOException("Missing resource " + resource);
+        }
+        try (final JsonParser parser = flowDiff.createParser(in)) {
+            return flowDiff.readSnapshot(parser, flowDiff.newDeduplicator());
+        }
+    }
+
+    private static Map<String, String> parseQuery(final String rawQuery) {
+        final Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            final int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                query.put(URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static String contentType(final DiffRenderer renderer) {
+        if (renderer instanceof JsonLinesRenderer) {
+            return "application/x-ndjson";
+        } else if (renderer instanceof SarifRenderer) {
+            return "application/sarif+json";
+        }
+        return "text/markdown; charset=utf-8";
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final String body) throws IOException {
+        respond(exchange, status, "text/plain; charset=utf-8", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final String contentType, final byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (final OutputStream response = exchange.getResponseBody()) {
+            response.write(body);
+        }
+    }
+}
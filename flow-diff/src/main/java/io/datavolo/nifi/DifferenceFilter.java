@@ -0,0 +1,108 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import org.apache.nifi.flow.ComponentType;
+import org.apache.nifi.flow.VersionedComponent;
+import org.apache.nifi.registry.flow.diff.DifferenceType;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+
+/**
+ * Selects the differences to report by difference type and by type of the changed component. An empty include set
+ * keeps every type and the exclude sets are applied after the include sets. The filter is applied to the differences
+ * of each comparison task as soon as the comparator returns them, before they are merged and sorted, and parameter
+ * contexts are not compared at all when their differences would all be filtered out.
+ */
+public final class DifferenceFilter implements Predicate<FlowDifference> {
+
+    public static final DifferenceFilter ALL = new DifferenceFilter(Set.of(), Set.of(), Set.of(), Set.of());
+
+    private final Set<DifferenceType> includedTypes;
+    private final Set<DifferenceType> excludedTypes;
+    private final Set<ComponentType> includedComponentTypes;
+    private final Set<ComponentType> excludedComponentTypes;
+
+    public DifferenceFilter(final Set<DifferenceType> includedTypes, final Set<DifferenceType> excludedTypes,
+            final Set<ComponentType> includedComponentTypes, final Set<ComponentType> excludedComponentTypes) {
+        this.includedTypes = Collections.unmodifiableSet(copy(includedTypes, DifferenceType.class));
+        this.excludedTypes = Collections.unmodifiableSet(copy(excludedTypes, DifferenceType.class));
+        this.includedComponentTypes = Collections.unmodifiableSet(copy(includedComponentTypes, ComponentType.class));
+        this.excludedComponentTypes = Collections.unmodifiableSet(copy(excludedComponentTypes, ComponentType.class));
+    }
+
+    // comma separated names, such as POSITION_CHANGED,BENDPOINTS_CHANGED or PROCESSOR,LABEL, null for none
+    static DifferenceFilter parse(final String includedTypes, final String excludedTypes,
+            final String includedComponentTypes, final String excludedComponentTypes) {
+        return new DifferenceFilter(
+                parseNames(includedTypes, DifferenceType.class),
+                parseNames(excludedTypes, DifferenceType.class),
+                parseNames(includedComponentTypes, ComponentType.class),
+                parseNames(excludedComponentTypes, ComponentType.class));
+    }
+
+    DifferenceFilter excluding(final DifferenceType... types) {
+        final Set<DifferenceType> excluded = copy(excludedTypes, DifferenceType.class);
+        Collections.addAll(excluded, types);
+        return new DifferenceFilter(includedTypes, excluded, includedComponentTypes, excludedComponentTypes);
+    }
+
+    @Override
+    public boolean test(final FlowDifference difference) {
+        if (!accepts(difference.getDifferenceType())) {
+            return false;
+        }
+        final VersionedComponent component = difference.getComponentB() == null ? difference.getComponentA() : difference.getComponentB();
+        return component == null || component.getComponentType() == null || accepts(component.getComponentType());
+    }
+
+    boolean accepts(final DifferenceType type) {
+        return (includedTypes.isEmpty() || includedTypes.contains(type)) && !excludedTypes.contains(type);
+    }
+
+    boolean accepts(final ComponentType type) {
+        return (includedComponentTypes.isEmpty() || includedComponentTypes.contains(type)) && !excludedComponentTypes.contains(type);
+    }
+
+    // positions and bend points are never reported, so moved components can be treated as unchanged
+    boolean excludesLayout() {
+        return !accepts(DifferenceType.POSITION_CHANGED) && !accepts(DifferenceType.BENDPOINTS_CHANGED);
+    }
+
+    // canonical form, used in the keys of the result cache
+    @Override
+    public String toString() {
+        return "include=" + new TreeSet<>(includedTypes) + ",exclude=" + new TreeSet<>(excludedTypes)
+                + ",includeComponents=" + new TreeSet<>(includedComponentTypes) + ",excludeComponents=" + new TreeSet<>(excludedComponentTypes);
+    }
+
+    private static <E extends Enum<E>> Set<E> copy(final Set<E> values, final Class<E> type) {
+        return values.isEmpty() ? EnumSet.noneOf(type) : EnumSet.copyOf(values);
+    }
+
+    private static <E extends Enum<E>> Set<E> parseNames(final String names, final Class<E> type) {
+        final Set<E> values = EnumSet.noneOf(type);
+        if (names == null) {
+            return values;
+        }
+        for (String name : names.split(",")) {
+            if (!name.isBlank()) {
+                try {
+                    values.add(Enum.valueOf(type, name.trim().toUpperCase(Locale.ROOT).replace('-', '_')));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " " + name.trim(), e);
+                }
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.nifi.flow.VersionedComponent;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+
+/**
+ * Order of the differences in a report: by process group path, component type, component name, difference type
+ * and field, then by component identifier and description so that ties are broken the same way on every run. The
+ * sort key of each difference is computed once before sorting, and only refers to strings that already exist, so
+ * sorting allocates one key per difference. No difference is ever dropped, even when two keys are equal.
+ */
+final class DifferenceOrder {
+
+    private static final Comparator<String> NULLS_FIRST = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private static final Comparator<SortKey> KEY_ORDER = Comparator
+            .comparing((SortKey key) -> key.groupPath, NULLS_FIRST)
+            .thenComparing(key -> key.componentType, NULLS_FIRST)
+            .thenComparing(key -> key.componentName, NULLS_FIRST)
+            .thenComparing(key -> key.differenceType, NULLS_FIRST)
+            .thenComparing(key -> key.fieldName, NULLS_FIRST)
+            .thenComparing(key -> key.componentIdentifier, NULLS_FIRST)
+            .thenComparing(key -> key.description, NULLS_FIRST);
+
+    private DifferenceOrder() {
+    }
+
+    // the group paths are looked up in the index of the snapshot after the change, then before the change
+    static List<FlowDifference> sort(final Collection<FlowDifference> differences, final FlowIndex indexA, final FlowIndex indexB) {
+        final List<SortKey> keys = new ArrayList<>(differences.size());
+        for (FlowDifference difference : differences) {
+            keys.add(new SortKey(difference, indexA, indexB));
+        }
+        keys.sort(KEY_ORDER);
+
+        final List<FlowDifference> sorted = new ArrayList<>(keys.size());
+        for (SortKey key : keys) {
+            sorted.add(key.difference);
+        }
+        return sorted;
+    }
+
+    private static final class SortKey {
+        final FlowDifference difference;
+        final String groupPath;
+        final String componentType;
+        final String componentName;
+        final String differenceType;
+        final String fieldName;
+        final String componentIdentifier;
+        final String description;
+
+        SortKey(final FlowDifference difference, final FlowIndex indexA, final FlowIndex indexB) {
+            final VersionedComponent component = difference.getComponentB() == null ? difference.getComponentA() : difference.getComponentB();
+            this.difference = difference;
+            if (component == null) {
+                this.groupPath = null;
+                this.componentType = null;
+                this.componentName = null;
+                this.componentIdentifier = null;
+            } else {
+                final String pathB = indexB.getGroupPath(component.getGroupIdentifier());
+                this.groupPath = pathB == null ? indexA.getGroupPath(component.getGroupIdentifier()) : pathB;
+                this.componentType = component.getComponentType() == null ? null : component.getComponentType().name();
+                this.componentName = component.getName();
+                this.componentIdentifier = component.getIdentifier();
+            }
+            this.differenceType = difference.getDifferenceType() == null ? null : difference.getDifferenceType().name();
+            this.fieldName = difference.getFieldName().orElse(null);
+            this.description = difference.getDescription();
+        }
+    }
+}
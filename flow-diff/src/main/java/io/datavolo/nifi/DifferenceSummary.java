@@ -0,0 +1,124 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.apache.nifi.flow.VersionedComponent;
+import org.apache.nifi.registry.flow.diff.DifferenceType;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+
+/**
+ * Counts of differences by process group, component type and difference type, such as "37 processors moved in group
+ * `/Ingest`". Differences are added one at a time and only the counts are kept, so the memory used depends on the
+ * number of groups and not on the number of differences.
+ */
+final class DifferenceSummary {
+
+    private final FlowIndex indexA;
+    private final FlowIndex indexB;
+    private final Map<Key, int[]> counts = new TreeMap<>();
+    private int total;
+
+    DifferenceSummary(final FlowIndex indexA, final FlowIndex indexB) {
+        this.indexA = indexA;
+        this.indexB = indexB;
+    }
+
+    void add(final FlowDifference difference) {
+        final VersionedComponent component = ChangedComponents.component(difference);
+        String groupPath = null;
+        if (component != null) {
+            groupPath = indexB.getGroupPath(component.getGroupIdentifier());
+            if (groupPath == null) {
+                groupPath = indexA.getGroupPath(component.getGroupIdentifier());
+            }
+        }
+        final String componentType = component == null || component.getComponentType() == null ? null : component.getComponentType().getTypeName();
+        counts.computeIfAbsent(new Key(groupPath, componentType, difference.getDifferenceType()), key -> new int[1])[0]++;
+        total++;
+    }
+
+    int getTotal() {
+        return total;
+    }
+
+    // one Markdown bullet per group, component type and difference type, ordered by group path
+    List<String> lines() {
+        final List<String> lines = new ArrayList<>(counts.size());
+        for (Map.Entry<Key, int[]> entry : counts.entrySet()) {
+            final Key key = entry.getKey();
+            final int count = entry.getValue()[0];
+            final String components = key.componentType == null ? "component" : key.componentType.toLowerCase(Locale.ROOT);
+            lines.add("- " + count + " " + components + (count == 1 ? "" : "s") + " " + describe(key.differenceType)
+                    + (key.groupPath == null ? "" : FlowIndex.ROOT_PATH.equals(key.groupPath) ? " in the root group" : " in group `" + key.groupPath + "`"));
+        }
+        return lines;
+    }
+
+    private static String describe(final DifferenceType differenceType) {
+        switch (differenceType) {
+        case COMPONENT_ADDED:
+            return "added";
+        case COMPONENT_REMOVED:
+            return "removed";
+        case POSITION_CHANGED:
+            return "moved";
+        case NAME_CHANGED:
+            return "renamed";
+        default:
+            return "with `" + differenceType.name() + "`";
+        }
+    }
+
+    private static final class Key implements Comparable<Key> {
+        final String groupPath;
+        final String componentType;
+        final DifferenceType differenceType;
+
+        Key(final String groupPath, final String componentType, final DifferenceType differenceType) {
+            this.groupPath = groupPath;
+            this.componentType = componentType;
+            this.differenceType = differenceType;
+        }
+
+        @Override
+        public int compareTo(final Key other) {
+            int result = compare(groupPath, other.groupPath);
+            if (result == 0) {
+                result = compare(componentType, other.componentType);
+            }
+            return result == 0 ? differenceType.compareTo(other.differenceType) : result;
+        }
+
+        private static int compare(final String a, final String b) {
+            if (a == null || b == null) {
+                return a == null ? (b == null ? 0 : -1) : 1;
+            }
+            return a.compareTo(b);
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            return Objects.equals(groupPath, key.groupPath) && Objects.equals(componentType, key.componentType)
+                    && differenceType == key.differenceType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(groupPath, componentType, differenceType);
+        }
+    }
+}
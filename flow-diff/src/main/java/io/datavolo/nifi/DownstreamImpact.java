@@ -0,0 +1,139 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.nifi.flow.VersionedComponent;
+import org.apache.nifi.flow.VersionedConnection;
+import org.apache.nifi.registry.flow.diff.DifferenceType;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+
+/**
+ * Components downstream of the components changed between two snapshots, found by walking the connections of the
+ * second snapshot. Connections are indexed by source once per snapshot; ports being endpoints like any other
+ * component, the walk goes in and out of process groups. Each walk visits every reachable component at most once
+ * and stops after a maximum number of components.
+ */
+final class DownstreamImpact {
+
+    // changes that do not affect the data going through the component
+    private static final Set<DifferenceType> COSMETIC_TYPES = EnumSet.of(DifferenceType.POSITION_CHANGED,
+            DifferenceType.BENDPOINTS_CHANGED, DifferenceType.SIZE_CHANGED, DifferenceType.STYLE_CHANGED,
+            DifferenceType.COMMENTS_CHANGED, DifferenceType.NAME_CHANGED, DifferenceType.LABEL_VALUE_CHANGED);
+
+    private final FlowIndex index;
+    private final int maxComponents;
+    // identifiers of the destinations of the connections leaving each component
+    private final Map<String, List<String>> destinations = new HashMap<>();
+
+    DownstreamImpact(final FlowIndex index, final int maxComponents) {
+        this.index = index;
+        this.maxComponents = maxComponents;
+        for (VersionedConnection connection : index.getConnections()) {
+            if (connection.getSource() != null && connection.getDestination() != null) {
+                destinations.computeIfAbsent(connection.getSource().getId(), id -> new ArrayList<>(2)).add(connection.getDestination().getId());
+            }
+        }
+    }
+
+    // impact of each changed component that reaches other components, in the order of the differences
+    static Map<String, Impact> analyze(final Collection<FlowDifference> differences, final FlowIndex index, final int maxComponents) {
+        final DownstreamImpact impact = new DownstreamImpact(index, maxComponents);
+        final Map<String, Impact> impacts = new LinkedHashMap<>();
+        final Set<String> analyzed = new HashSet<>();
+        for (FlowDifference difference : differences) {
+            final VersionedComponent component = difference.getComponentB();
+            if (component == null || COSMETIC_TYPES.contains(difference.getDifferenceType())
+                    || !analyzed.add(component.getIdentifier()) || index.getComponent(component.getIdentifier()) == null) {
+                continue;
+            }
+            final Impact downstream = impact.downstream(component);
+            if (!downstream.getComponents().isEmpty()) {
+                impacts.put(component.getIdentifier(), downstream);
+            }
+        }
+        return impacts;
+    }
+
+    // breadth first, so that the components closest to the change are the ones kept when the walk is cut short
+    Impact downstream(final VersionedComponent component) {
+        final Set<String> visited = new LinkedHashSet<>();
+        final Deque<String> queue = new ArrayDeque<>();
+        boolean truncated = false;
+        if (component instanceof VersionedConnection) {
+            final VersionedConnection connection = (VersionedConnection) component;
+            if (connection.getDestination() != null) {
+                visited.add(connection.getDestination().getId());
+                queue.add(connection.getDestination().getId());
+            }
+        } else {
+            queue.add(component.getIdentifier());
+        }
+
+        walk:
+        while (!queue.isEmpty()) {
+            for (String destination : destinations.getOrDefault(queue.poll(), Collections.emptyList())) {
+                if (destination.equals(component.getIdentifier()) || visited.contains(destination)) {
+                    continue;
+                }
+                if (visited.size() == maxComponents) {
+                    truncated = true;
+                    break walk;
+                }
+                visited.add(destination);
+                queue.add(destination);
+            }
+        }
+
+        final List<VersionedComponent> components = new ArrayList<>(visited.size());
+        for (String identifier : visited) {
+            final VersionedComponent downstream = index.getComponent(identifier);
+            if (downstream != null) {
+                components.add(downstream);
+            }
+        }
+        return new Impact(component, components, truncated);
+    }
+
+    static final class Impact {
+        private final VersionedComponent component;
+        private final List<VersionedComponent> components;
+        private final boolean truncated;
+
+        Impact(final VersionedComponent component, final List<VersionedComponent> components, final boolean truncated) {
+            this.component = component;
+            this.components = Collections.unmodifiableList(components);
+            this.truncated = truncated;
+        }
+
+        VersionedComponent getComponent() {
+            return component;
+        }
+
+        // downstream components, closest first
+        List<VersionedComponent> getComponents() {
+            return components;
+        }
+
+        // whether more components are reachable than the ones listed
+        boolean isTruncated() {
+            return truncated;
+        }
+    }
+}
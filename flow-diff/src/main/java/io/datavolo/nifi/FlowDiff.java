@@ -5,31 +5,33 @@
  */
 package io.datavolo.nifi;
 
-import java.io.File;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
 
-import org.apache.nifi.flow.ConnectableComponent;
-import org.apache.nifi.flow.Bundle;
 import org.apache.nifi.flow.ComponentType;
 import org.apache.nifi.flow.VersionedComponent;
-import org.apache.nifi.flow.VersionedConnection;
-import org.apache.nifi.flow.VersionedControllerService;
-import org.apache.nifi.flow.VersionedParameter;
 import org.apache.nifi.flow.VersionedParameterContext;
 import org.apache.nifi.flow.VersionedProcessGroup;
-import org.apache.nifi.flow.VersionedProcessor;
 import org.apache.nifi.registry.flow.FlowSnapshotContainer;
 import org.apache.nifi.registry.flow.RegisteredFlowSnapshot;
 import org.apache.nifi.registry.flow.diff.ConciseEvolvingDifferenceDescriptor;
+import org.apache.nifi.registry.flow.diff.DifferenceType;
 import org.apache.nifi.registry.flow.diff.FlowComparator;
 import org.apache.nifi.registry.flow.diff.FlowComparatorVersionedStrategy;
 import org.apache.nifi.registry.flow.diff.FlowDifference;
@@ -41,339 +43,348 @@ import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
-public class FlowDiff {
+public class FlowDiff implements AutoCloseable {
 
-    private static String flowName;
-    private static Map<String, VersionedParameterContext> parameterContexts;
+    private static final FlowDiff DEFAULT = new FlowDiff();
+    private static final int DEFAULT_CACHE_SIZE_MB = 256;
+    private static final int DEFAULT_SNAPSHOT_CACHE_SIZE_MB = 1024;
+
+    private final ObjectMapper objectMapper;
+    private final JsonFactory factory;
+    private final ObjectReader snapshotReader;
+    private final boolean deduplicate;
+    private final UnchangedSubtreePruner pruner;
+    private final DifferenceFilter filter;
+    private final ParallelFlowComparison parallelComparison;
+    private final DiffResultCache resultCache;
+    private final SnapshotCache snapshotCache;
+    private final DiffRenderer renderer;
+    private final int maxImpactedComponents;
+    final DiffMetrics metrics;
+
+    public FlowDiff() {
+        this(new Builder());
+    }
+
+    private FlowDiff(final Builder builder) {
+        objectMapper = new ObjectMapper();
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        objectMapper.setDefaultPropertyInclusion(JsonInclude.Value.construct(JsonInclude.Include.NON_NULL, JsonInclude.Include.NON_NULL));
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        objectMapper.registerModule(SnapshotDeduplicator.module());
+        factory = new JsonFactory(objectMapper);
+        snapshotReader = objectMapper.readerFor(RegisteredFlowSnapshot.class);
+        deduplicate = builder.deduplicate;
+        filter = builder.ignoreLayoutChanges
+                ? builder.filter.excluding(DifferenceType.POSITION_CHANGED, DifferenceType.BENDPOINTS_CHANGED)
+                : builder.filter;
+        pruner = builder.pruneUnchangedGroups ? new UnchangedSubtreePruner(filter.excludesLayout()) : null;
+        parallelComparison = builder.parallelism > 1 ? new ParallelFlowComparison(builder.parallelism) : null;
+        if (builder.maxReportBytes > 0 && !DiffRenderer.MARKDOWN.equals(builder.format)) {
+            throw new IllegalArgumentException("A byte budget can only be set for the " + DiffRenderer.MARKDOWN + " format");
+        }
+        // the full report of every section would have to be kept in the cache entries
+        if (builder.detailsFile != null && builder.resultCacheDirectory != null) {
+            throw new IllegalArgumentException("A details file cannot be written when diff results are cached");
+        }
+        renderer = builder.maxReportBytes > 0 ? new SummaryRenderer(builder.maxReportBytes, builder.detailsFile) : DiffRenderer.forFormat(builder.format);
+        maxImpactedComponents = builder.maxImpactedComponents;
+        metrics = builder.metrics ? new DiffMetrics() : null;
+        resultCache = builder.resultCacheDirectory == null ? null
+                : new DiffResultCache(new CacheDirectory(builder.resultCacheDirectory, builder.resultCacheMaxBytes),
+                        "filter=" + filter + "|format=" + builder.format + "|impact=" + builder.maxImpactedComponents
+                        + "|maxBytes=" + builder.maxReportBytes);
+        snapshotCache = builder.snapshotCacheDirectory == null ? null
+                : new SnapshotCache(new CacheDirectory(builder.snapshotCacheDirectory, builder.snapshotCacheMaxBytes));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    static FlowDiff fromOptions(final FlowDiffOptions options) {
+        final Builder builder = builder();
+        if (options.has(FlowDiffOptions.CACHE_DIR)) {
+            builder.resultCache(Paths.get(options.get(FlowDiffOptions.CACHE_DIR)),
+                    options.getInt(FlowDiffOptions.CACHE_SIZE, DEFAULT_CACHE_SIZE_MB) * 1024L * 1024L);
+        }
+        if (options.has(FlowDiffOptions.SNAPSHOT_CACHE_DIR)) {
+            builder.snapshotCache(Paths.get(options.get(FlowDiffOptions.SNAPSHOT_CACHE_DIR)),
+                    options.getInt(FlowDiffOptions.SNAPSHOT_CACHE_SIZE, DEFAULT_SNAPSHOT_CACHE_SIZE_MB) * 1024L * 1024L);
+        }
+        return builder
+                .deduplicate(options.has(FlowDiffOptions.DEDUPLICATE))
+                .pruneUnchangedGroups(options.has(FlowDiffOptions.PRUNE_UNCHANGED))
+                .ignoreLayoutChanges(options.has(FlowDiffOptions.IGNORE_LAYOUT))
+                .filter(DifferenceFilter.parse(
+                        options.get(FlowDiffOptions.INCLUDE_TYPES), options.get(FlowDiffOptions.EXCLUDE_TYPES),
+                        options.get(FlowDiffOptions.INCLUDE_COMPONENTS), options.get(FlowDiffOptions.EXCLUDE_COMPONENTS)))
+                .parallelism(options.getInt(FlowDiffOptions.PARALLELISM, 1))
+                .format(options.has(FlowDiffOptions.FORMAT) ? options.get(FlowDiffOptions.FORMAT) : DiffRenderer.MARKDOWN)
+                .metrics(options.has(FlowDiffOptions.METRICS_FILE))
+                .downstreamImpact(options.getInt(FlowDiffOptions.IMPACT, 0))
+                .maxReportBytes(options.getInt(FlowDiffOptions.MAX_BYTES, 0),
+                        options.has(FlowDiffOptions.DETAILS_FILE) ? Paths.get(options.get(FlowDiffOptions.DETAILS_FILE)) : null)
+                .build();
+    }
 
     public static void main(String[] args) throws IOException {
 
-        String pathA = args[0];
-        String pathB = args[1];
-
-        final Set<FlowDifference> diffs = getDiff(pathA, pathB);
-
-        System.out.println("> [!NOTE]");
-        System.out.println("> # ![datavolo.io](https://docs.datavolo.io/img/logo-without-name.svg) Datavolo NiFi Flow Diff");
-        System.out.println("> This GitHub Action is created and maintained by [Datavolo](https://datavolo.io/).");
-        System.out.println("### Executing Datavolo Flow Diff for flow: `" + flowName + "`");
-
-        for(FlowDifference diff : diffs) {
-
-            switch (diff.getDifferenceType()) {
-            case COMPONENT_ADDED: {
-                if (diff.getComponentB().getComponentType().equals(ComponentType.FUNNEL)) {
-                    System.out.println("- A Funnel has been added");
-                } else if (diff.getComponentB().getComponentType().equals(ComponentType.CONNECTION)) {
-                    final VersionedConnection connection = (VersionedConnection) diff.getComponentB();
-                    if (connection.getSource().getId().equals(connection.getDestination().getId())) {
-                        System.out.println("- A self-loop connection `"
-                                + (isEmpty(connection.getName()) ? connection.getSelectedRelationships().toString() : connection.getName())
-                                + "` has been added on `" + connection.getSource().getName() + "`");
-                    } else {
-                        System.out.println("- A connection `"
-                                + (isEmpty(connection.getName()) ? connection.getSelectedRelationships().toString() : connection.getName())
-                                + "` from `" + connection.getSource().getName() + "` to `" + connection.getDestination().getName()
-                                + "` has been added");
-                    }
-                } else if (diff.getComponentB().getComponentType().equals(ComponentType.PROCESSOR)) {
-                    final VersionedProcessor proc = (VersionedProcessor) diff.getComponentB();
-                    System.out.println("- A Processor"
-                            + (isEmpty(diff.getComponentB().getName()) ? "" : " `" + diff.getComponentB().getName() + "`")
-                            + " has been added with the configuration [" + printProcessorConf(proc) + "] and the below properties:");
-                    printProcessorProperties(proc);
-                } else if (diff.getComponentB().getComponentType().equals(ComponentType.CONTROLLER_SERVICE)) {
-                    final VersionedControllerService cs = (VersionedControllerService) diff.getComponentB();
-                    System.out.println("- A Controller Service"
-                            + (isEmpty(diff.getComponentB().getName()) ? "" : " `" + diff.getComponentB().getName() + "`")
-                            + " has been added with the below properties:");
-                    printControllerProperties(cs);
-                } else {
-                    System.out.println("- A " + diff.getComponentB().getComponentType().getTypeName()
-                            + (isEmpty(diff.getComponentB().getName()) ? "" : " named `" + diff.getComponentB().getName() + "`")
-                            + " has been added");
-                }
-                break;
+        final FlowDiffOptions options = FlowDiffOptions.parse(args);
+        if (options.has(FlowDiffOptions.VERSION)) {
+            System.out.println("Datavolo Flow Diff " + BuildInfo.getToolVersion() + " (Apache NiFi " + BuildInfo.getNiFiVersion() + ")");
+            return;
+        }
+
+        final FlowDiff flowDiff = fromOptions(options);
+        if (options.has(FlowDiffOptions.SERVER)) {
+            if (options.has(FlowDiffOptions.DETAILS_FILE)) {
+                throw new IllegalArgumentException("A details file cannot be written by the server, every request would overwrite it");
             }
-            case COMPONENT_REMOVED: {
-                if (diff.getComponentA().getComponentType().equals(ComponentType.FUNNEL)) {
-                    System.out.println("- A Funnel has been removed");
+            final DiffServer server = new DiffServer(flowDiff, options.getInt(FlowDiffOptions.SERVER, 0));
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop();
+                flowDiff.close();
+            }));
+            System.err.println("Datavolo Flow Diff server listening on http://localhost:" + server.getPort());
+            return;
+        }
+
+        try {
+            final PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+            try (DiffMetrics.Phase run = flowDiff.phase("run")) {
+                if (options.has(FlowDiffOptions.BATCH) || options.has(FlowDiffOptions.CHANGED) || options.has(FlowDiffOptions.SCAN)) {
+                    new BatchDiff(flowDiff, options).run(out);
+                } else if (options.has(FlowDiffOptions.CHAIN) || options.has(FlowDiffOptions.GIT_RANGE)) {
+                    new ChainDiff(flowDiff, options).run(out);
                 } else {
-                    System.out.println("- A " + diff.getComponentA().getComponentType().getTypeName()
-                            + (isEmpty(diff.getComponentA().getName()) ? "" : " named `" + diff.getComponentA().getName() + "`")
-                            + " has been removed");
+                    String pathA = options.getPositional(0);
+                    String pathB = options.getPositional(1);
+
+                    final DiffRenderer.Report report = flowDiff.getRenderer().start(out);
+                    flowDiff.report(pathA, pathB, report);
+                    flowDiff.getRenderer().finish(report);
                 }
-                break;
-            }
-            case DESTINATION_CHANGED: {
-                System.out.println("- The destination of a connection has changed from `" + ((ConnectableComponent) diff.getValueA()).getName()
-                        + "` to `" + ((ConnectableComponent) diff.getValueB()).getName() + "`");
-                break;
-            }
-            case PROPERTY_CHANGED: {
-                System.out.println("- In the " + diff.getComponentA().getComponentType().getTypeName()
-                        + " named `" + diff.getComponentA().getName() + "`, the value of the property "
-                        + "`" + diff.getFieldName().get() + "` changed from `" + diff.getValueA()
-                        + "` to `" + diff.getValueB() + "`");
-                break;
-            }
-            case CONCURRENT_TASKS_CHANGED: {
-                System.out.println("- In processor `" + diff.getComponentA().getName() + "`, the number of concurrent tasks has been "
-                        + ((int) diff.getValueA() > (int) diff.getValueB() ? "decreased" : "increased")
-                        + " from `" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
-                break;
-            }
-            case BACKPRESSURE_DATA_SIZE_THRESHOLD_CHANGED: {
-                final VersionedConnection connection = (VersionedConnection) diff.getComponentA();
-                System.out.println("- The data size backpressure threshold for the connection `"
-                        + (isEmpty(connection.getName()) ? connection.getSelectedRelationships().toString() : connection.getName())
-                        + "` from `" + connection.getSource().getName() + "` to `" + connection.getDestination().getName()
-                        + "` has been changed from `" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
-                break;
-            }
-            case BACKPRESSURE_OBJECT_THRESHOLD_CHANGED: {
-                final VersionedConnection connection = (VersionedConnection) diff.getComponentA();
-                System.out.println("- The flowfile number backpressure threshold for the connection `"
-                        + (isEmpty(connection.getName()) ? connection.getSelectedRelationships().toString() : connection.getName())
-                        + "` from `" + connection.getSource().getName() + "` to `" + connection.getDestination().getName()
-                        + "` has been changed from `" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
-                break;
-            }
-            case BULLETIN_LEVEL_CHANGED: {
-                System.out.println("- In " + diff.getComponentA().getComponentType() + " named `" + diff.getComponentA().getName()
-                        + "`, the bulletin level has been changed from `" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
-                break;
-            }
-            case RUN_DURATION_CHANGED: {
-                final VersionedProcessor processor = (VersionedProcessor) diff.getComponentA();
-                System.out.println("- In processor `" + processor.getName()
-                        + "`, the Run Duration changed from "
-                        + "`" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
-                break;
-            }
-            case RUN_SCHEDULE_CHANGED: {
-                final VersionedProcessor processor = (VersionedProcessor) diff.getComponentA();
-                System.out.println("- In processor `" + processor.getName()
-                        + "`, the Run Schedule changed from "
-                        + "`" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
-                break;
-            }
-            case AUTO_TERMINATED_RELATIONSHIPS_CHANGED: {
-                final VersionedProcessor processor = (VersionedProcessor) diff.getComponentA();
-                System.out.println("- In processor `" + processor.getName()
-                        + "`, the list of auto-terminated relationships changed from "
-                        + "`" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
-                break;
-            }
-            case LOAD_BALANCE_STRATEGY_CHANGED: {
-                final VersionedConnection connection = (VersionedConnection) diff.getComponentA();
-                System.out.println("- The load balancing strategy for the connection `"
-                        + (isEmpty(connection.getName()) ? connection.getSelectedRelationships().toString() : connection.getName())
-                        + "` from `" + connection.getSource().getName() + "` to `" + connection.getDestination().getName()
-                        + "` has been changed from `" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
-                break;
+                out.flush();
             }
-            case LOAD_BALANCE_COMPRESSION_CHANGED: {
-                final VersionedConnection connection = (VersionedConnection) diff.getComponentA();
-                System.out.println("- The load balancing compression for the connection `"
-                        + (isEmpty(connection.getName()) ? connection.getSelectedRelationships().toString() : connection.getName())
-                        + "` from `" + connection.getSource().getName() + "` to `" + connection.getDestination().getName()
-                        + "` has been changed from `" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
-                break;
-            }
-            case FLOWFILE_EXPIRATION_CHANGED: {
-                final VersionedConnection connection = (VersionedConnection) diff.getComponentA();
-                System.out.println("- The flow file expiration for the connection `"
-                        + (isEmpty(connection.getName()) ? connection.getSelectedRelationships().toString() : connection.getName())
-                        + "` from `" + connection.getSource().getName() + "` to `" + connection.getDestination().getName()
-                        + "` has been changed from `" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
-                break;
-            }
-            case PENALTY_DURATION_CHANGED: {
-                final VersionedProcessor processor = (VersionedProcessor) diff.getComponentA();
-                System.out.println("- In processor `" + processor.getName()
-                        + "`, the penalty duration changed from "
-                        + "`" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
-                break;
-            }
-            case PARAMETER_CONTEXT_CHANGED: {
-                final VersionedProcessGroup pg = (VersionedProcessGroup) diff.getComponentB();
-                System.out.println("- The parameter context `" + pg.getParameterContextName() + "` with parameters `"
-                        + printParameterContext(parameterContexts.get(pg.getParameterContextName()))
-                        + "` has been added to the process group `" + pg.getName() + "`");
-                break;
-            }
-            case POSITION_CHANGED: {
-                System.out.println("- A " + diff.getComponentA().getComponentType()
-                        + (isEmpty(diff.getComponentA().getName()) ? "" : " named `" + diff.getComponentA().getName() + "`")
-                        + " has been moved to another position");
-                break;
-            }
-            case SCHEDULING_STRATEGY_CHANGED: {
-                final VersionedProcessor processor = (VersionedProcessor) diff.getComponentA();
-                System.out.println("- In processor named `" + processor.getName()
-                        + "`, the Scheduling Strategy changed from "
-                        + "`" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
-                break;
-            }
-            case BUNDLE_CHANGED:
-                Bundle before = (Bundle) diff.getValueA();
-                Bundle after = (Bundle) diff.getValueB();
-                System.out.println("- The bundle `"
-                        + before.getGroup() + ":" + before.getArtifact()
-                        + "` has been changed from version "
-                        + "`" + before.getVersion() + "` to version `" + after.getVersion() + "`");
-                break;
-            case NAME_CHANGED: {
-                System.out.println("- A "
-                        + diff.getComponentA().getComponentType()
-                        + " has been renamed from "
-                        + "`" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
-                break;
+
+            if (flowDiff.resultCache != null) {
+                System.err.println("Diff result cache: " + flowDiff.resultCache.getDirectory().describeCounters());
             }
-            case PROPERTY_ADDED: {
-                final String propKey = (String) diff.getValueB();
-                String propValue = null;
-                if (diff.getComponentB() instanceof VersionedProcessor) {
-                    if (((VersionedProcessor) diff.getComponentB()).getPropertyDescriptors().get(propKey).isSensitive()) {
-                        propValue = "<Sensitive Value>";
-                    } else {
-                        propValue = ((VersionedProcessor) diff.getComponentB()).getProperties().get(propKey);
-                    }
-                }
-                if (diff.getComponentB() instanceof VersionedControllerService) {
-                    if (((VersionedControllerService) diff.getComponentB()).getPropertyDescriptors().get(propKey).isSensitive()) {
-                        propValue = "<Sensitive Value>";
-                    } else {
-                        propValue = ((VersionedControllerService) diff.getComponentB()).getProperties().get(propKey);
-                    }
-                }
-                System.out.println("- In " + diff.getComponentA().getComponentType()
-                        + " named `" + diff.getComponentA().getName() + "`, a property has been added: "
-                        + "`" + propKey + "` = `" + propValue + "`");
-                break;
+            if (flowDiff.snapshotCache != null) {
+                System.err.println("Snapshot cache: " + flowDiff.snapshotCache.getDirectory().describeCounters());
             }
-            case PROPERTY_PARAMETERIZED: {
-                final String propKey = diff.getFieldName().get();
-                String propValue = null;
-                if (diff.getComponentB() instanceof VersionedProcessor) {
-                    propValue = ((VersionedProcessor) diff.getComponentB()).getProperties().get(propKey);
-                }
-                if (diff.getComponentB() instanceof VersionedControllerService) {
-                    propValue = ((VersionedControllerService) diff.getComponentB()).getProperties().get(propKey);
+        } finally {
+            // the metrics of a failed run are written as well, they tell how far it went
+            try {
+                if (flowDiff.metrics != null) {
+                    flowDiff.metrics.write(Paths.get(options.get(FlowDiffOptions.METRICS_FILE)));
                 }
-                System.out.println("- In " + diff.getComponentA().getComponentType()
-                        + " named `" + diff.getComponentA().getName() + "`, a property is now referencing a parameter: "
-                        + "`" + propKey + "` = `" + propValue + "`");
-                break;
-            }
-            case PROPERTY_PARAMETERIZATION_REMOVED: {
-                final String propKey = diff.getFieldName().get();
-                System.out.println("- In " + diff.getComponentA().getComponentType()
-                        + " named `" + diff.getComponentA().getName()
-                        + "`, the property `" + propKey + "` is no longer referencing a parameter");
-                break;
-            }
-            case SCHEDULED_STATE_CHANGED: {
-                System.out.println("- In the " + diff.getComponentA().getComponentType().getTypeName()
-                        + " named `" + diff.getComponentA().getName()
-                        + "`, the Schedule State changed from `"
-                        + diff.getValueA() + "` to `" + diff.getValueB() + "`");
-                break;
-            } 
-            case PARAMETER_ADDED: {
-                final String paramKey = diff.getFieldName().get();
-                final VersionedParameterContext pc = (VersionedParameterContext) diff.getComponentB();
-                final VersionedParameter param = pc.getParameters().stream().filter(p -> p.getName().equals(paramKey)).findFirst().get();
-                System.out.println("- In the Parameter Context `" + pc.getName() + "` a parameter has been added: `"
-                        + paramKey + "` = `" + (param.isSensitive() ? "<Sensitive Value>" : param.getValue()) + "`");
-                break;
+            } finally {
+                flowDiff.close();
             }
-            case PARAMETER_REMOVED: {
-                final String paramKey = diff.getFieldName().get();
-                final VersionedParameterContext pc = (VersionedParameterContext) diff.getComponentB();
-                System.out.println("- In the Parameter Context `"+ pc.getName() + "` the parameter `" + paramKey + "` has been removed");
-                break;
+        }
+    }
+
+    public static Set<FlowDifference> getDiff(final String pathA, final String pathB) throws IOException {
+        return DEFAULT.diff(pathA, pathB).getDifferences();
+    }
+
+    public DiffResult diff(final String pathA, final String pathB) throws IOException {
+        // both sides of a comparison share their values, which are released with them
+        final SnapshotDeduplicator deduplicator = newDeduplicator();
+        final FlowSnapshotContainer snapshotA = load(pathA, deduplicator);
+        final FlowSnapshotContainer snapshotB = load(pathB, deduplicator);
+        return diff(snapshotA.getFlowSnapshot(), snapshotB.getFlowSnapshot());
+    }
+
+    FlowSnapshotContainer load(final String path) throws IOException {
+        return load(path, newDeduplicator());
+    }
+
+    FlowSnapshotContainer load(final String path, final SnapshotDeduplicator deduplicator) throws IOException {
+        try (DiffMetrics.Phase phase = phase("load")) {
+            if (snapshotCache != null) {
+                return new FlowSnapshotContainer(snapshotCache.load(Paths.get(path), deduplicator, file -> parse(file, deduplicator)));
             }
-            case PROPERTY_REMOVED: {
-                final String propKey = diff.getFieldName().get();
-                System.out.println("- In "
-                        + diff.getComponentA().getComponentType()
-                        + " named `" + diff.getComponentA().getName()
-                        + "`, the property `" + propKey + "` has been removed");
-                break;
+            return new FlowSnapshotContainer(parse(Paths.get(path), deduplicator));
+        }
+    }
+
+    private RegisteredFlowSnapshot parse(final Path path, final SnapshotDeduplicator deduplicator) throws IOException {
+        return getFlowContainer(path.toString(), SnapshotDeduplicator.reader(snapshotReader, deduplicator)).getFlowSnapshot();
+    }
+
+    // the values shared by the snapshots of one comparison, null when they are not deduplicated
+    SnapshotDeduplicator newDeduplicator() {
+        return deduplicate ? new SnapshotDeduplicator() : null;
+    }
+
+    RegisteredFlowSnapshot readSnapshot(final JsonParser parser, final SnapshotDeduplicator deduplicator) throws IOException {
+        return SnapshotDeduplicator.reader(snapshotReader, deduplicator).readValue(parser);
+    }
+
+    // writes the section for two flow definitions, taken from the result cache when one is configured
+    void report(final String pathA, final String pathB, final DiffRenderer.Report report) throws IOException {
+        if (resultCache == null) {
+            final DiffResult result = diff(pathA, pathB);
+            try (DiffMetrics.Phase phase = phase("render")) {
+                renderer.render(report, result, null);
             }
-            case PARAMETER_VALUE_CHANGED: {
-                final String paramKey = diff.getFieldName().get();
-                final VersionedParameterContext pcBefore = (VersionedParameterContext) diff.getComponentA();
-                final VersionedParameterContext pcAfter = (VersionedParameterContext) diff.getComponentB();
-                final VersionedParameter paramBefore = pcBefore.getParameters().stream().filter(p -> p.getName().equals(paramKey)).findFirst().get();
-                final VersionedParameter paramAfter = pcAfter.getParameters().stream().filter(p -> p.getName().equals(paramKey)).findFirst().get();
-                System.out.println("- In the Parameter Context `" + pcAfter.getName()
-                        + "`, the value of the parameter `" + paramKey + "` has changed from `"
-                        + (paramBefore.isSensitive() ? "<Sensitive Value>" : paramBefore.getValue()) + "`"
-                        + " to `"
-                        + (paramAfter.isSensitive() ? "<Sensitive Value>" : paramAfter.getValue()) + "`");
-                break;
+            return;
+        }
+        report.getWriter().write(renderer.layout(report, List.of(prepare(pathA, pathB))).get(0));
+    }
+
+    // the section for two flow definitions, to be laid out with the other sections of a report
+    DiffRenderer.Section prepare(final String pathA, final String pathB) throws IOException {
+        if (resultCache == null) {
+            return prepare(diff(pathA, pathB), null);
+        }
+
+        final String key = resultCache.key(Paths.get(pathA), Paths.get(pathB));
+        final String cached = resultCache.get(key);
+        if (cached != null) {
+            return renderer.decode(cached);
+        }
+        final DiffRenderer.Section section = prepare(diff(pathA, pathB), null);
+        resultCache.put(key, renderer.encode(section));
+        return section;
+    }
+
+    DiffRenderer.Section prepare(final DiffResult result, final String title) throws IOException {
+        try (DiffMetrics.Phase phase = phase("render")) {
+            return renderer.prepare(result, title);
+        }
+    }
+
+    String report(final String pathA, final String pathB) throws IOException {
+        final StringWriter report = new StringWriter();
+        report(pathA, pathB, new DiffRenderer.Report(report));
+        return report.toString();
+    }
+
+    String render(final DiffResult result, final String title) throws IOException {
+        try (DiffMetrics.Phase phase = phase("render")) {
+            final StringWriter report = new StringWriter();
+            renderer.render(report, result, title);
+            return report.toString();
+        }
+    }
+
+    public DiffRenderer getRenderer() {
+        return renderer;
+    }
+
+    // releases the threads of the parallel comparison, the instance can no longer compare flows once closed
+    @Override
+    public void close() {
+        if (parallelComparison != null) {
+            parallelComparison.close();
+        }
+    }
+
+    public DiffResult diff(final RegisteredFlowSnapshot snapshotA, final RegisteredFlowSnapshot snapshotB) {
+        final Set<FlowDifference> differences = compare(snapshotA, snapshotB);
+        final FlowIndex indexA;
+        final FlowIndex indexB;
+        final List<FlowDifference> sortedDiffs;
+        try (DiffMetrics.Phase phase = phase("index")) {
+            indexA = new FlowIndex(snapshotA.getFlowContents());
+            indexB = new FlowIndex(snapshotB.getFlowContents());
+        }
+        try (DiffMetrics.Phase phase = phase("sort")) {
+            sortedDiffs = DifferenceOrder.sort(differences, indexA, indexB);
+        }
+        if (metrics != null) {
+            metrics.countComponents(snapshotA, snapshotB);
+            metrics.countDifferences(sortedDiffs);
+        }
+        Map<String, DownstreamImpact.Impact> impacts = Collections.emptyMap();
+        if (maxImpactedComponents > 0) {
+            try (DiffMetrics.Phase phase = phase("impact")) {
+                impacts = DownstreamImpact.analyze(sortedDiffs, indexB, maxImpactedComponents);
             }
-            case INHERITED_CONTEXTS_CHANGED:
-                final VersionedParameterContext pc = (VersionedParameterContext) diff.getComponentA();
-                System.out.println("- In the Parameter Context `" + pc.getName()
-                + "`, the list of inherited parameter contexts changed from `"
-                + diff.getValueA() + "`" + " to `" + diff.getValueB() + "`");
-                break;
-            case BENDPOINTS_CHANGED:
-                final VersionedConnection connection = (VersionedConnection) diff.getComponentA();
-                System.out.println("- The bending points for the connection `"
-                        + (isEmpty(connection.getName()) ? connection.getSelectedRelationships().toString() : connection.getName())
-                        + "` from `" + connection.getSource().getName() + "` to `" + connection.getDestination().getName()
-                        + "` have been changed");
-                break;
-            default:
-                System.out.println("- " + diff.getDescription() + " (" + diff.getDifferenceType() + ")");
-                System.out.println("  - " + diff.getValueA());
-                System.out.println("  - " + diff.getValueB());
-                System.out.println("  - " + diff.getComponentA());
-                System.out.println("  - " + diff.getComponentB());
-                System.out.println("  - " + diff.getFieldName());
-                break;
+        }
+        return new DiffResult(snapshotA.getFlow().getName(), sortedDiffs, snapshotA.getParameterContexts(), snapshotB.getParameterContexts(),
+                indexA, indexB, impacts);
+    }
+
+    Set<FlowDifference> compare(final RegisteredFlowSnapshot snapshotA, final RegisteredFlowSnapshot snapshotB) {
+        VersionedProcessGroup contentsA = snapshotA.getFlowContents();
+        VersionedProcessGroup contentsB = snapshotB.getFlowContents();
+        if (pruner != null) {
+            final UnchangedSubtreePruner.PrunedGroups pruned;
+            try (DiffMetrics.Phase phase = phase("prune")) {
+                pruned = pruner.prune(contentsA, contentsB);
             }
+            contentsA = pruned.getGroupA();
+            contentsB = pruned.getGroupB();
+        }
+
+        // parameter contexts are left out of the comparison when none of their differences would be kept
+        final boolean compareParameterContexts = filter.accepts(ComponentType.PARAMETER_CONTEXT);
+        final Set<VersionedParameterContext> parameterContextsA = compareParameterContexts ? identifiedByName(snapshotA) : Set.of();
+        final Set<VersionedParameterContext> parameterContextsB = compareParameterContexts ? identifiedByName(snapshotB) : Set.of();
+        try (DiffMetrics.Phase phase = phase("compare")) {
+            return parallelComparison == null
+                    ? compareGroups(contentsA, contentsB, parameterContextsA, parameterContextsB, filter)
+                    : parallelComparison.compare(contentsA, contentsB, parameterContextsA, parameterContextsB, filter);
         }
     }
-    
-    public static Set<FlowDifference> getDiff(final String pathA, final String pathB) throws IOException {
-        final ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-        objectMapper.setDefaultPropertyInclusion(JsonInclude.Value.construct(JsonInclude.Include.NON_NULL, JsonInclude.Include.NON_NULL));
-        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
-        final JsonFactory factory = new JsonFactory(objectMapper);
-        final FlowSnapshotContainer snapshotA = getFlowContainer(pathA, factory);
-        final FlowSnapshotContainer snapshotB = getFlowContainer(pathB, factory);
+    // identifier is null for parameter contexts, and we know that names are unique so copies with the name as id are
+    // compared, the snapshot being shared with other comparisons
+    private static Set<VersionedParameterContext> identifiedByName(final RegisteredFlowSnapshot snapshot) {
+        final Set<VersionedParameterContext> contexts = new HashSet<>();
+        for (VersionedParameterContext context : snapshot.getParameterContexts().values()) {
+            final VersionedParameterContext copy = new VersionedParameterContext();
+            copy.setIdentifier(context.getName());
+            copy.setInstanceIdentifier(context.getInstanceIdentifier());
+            copy.setGroupIdentifier(context.getGroupIdentifier());
+            copy.setName(context.getName());
+            copy.setComments(context.getComments());
+            copy.setPosition(context.getPosition());
+            copy.setDescription(context.getDescription());
+            copy.setParameters(context.getParameters());
+            copy.setInheritedParameterContexts(context.getInheritedParameterContexts());
+            copy.setParameterProvider(context.getParameterProvider());
+            copy.setParameterGroupName(context.getParameterGroupName());
+            copy.setSynchronized(context.isSynchronized());
+            contexts.add(copy);
+        }
+        return contexts;
+    }
 
-        // identifier is null for parameter contexts, and we know that names are unique so setting name as id
-        snapshotA.getFlowSnapshot().getParameterContexts().values().forEach(pc -> pc.setIdentifier(pc.getName()));
-        snapshotB.getFlowSnapshot().getParameterContexts().values().forEach(pc -> pc.setIdentifier(pc.getName()));
+    // a phase of the run, recorded when metrics are enabled
+    DiffMetrics.Phase phase(final String name) {
+        return metrics == null ? DiffMetrics.NO_PHASE : metrics.start(name);
+    }
 
+    static Set<FlowDifference> compareGroups(final VersionedProcessGroup groupA, final VersionedProcessGroup groupB,
+            final Set<VersionedParameterContext> parameterContextsA, final Set<VersionedParameterContext> parameterContextsB,
+            final DifferenceFilter filter) {
         final FlowComparator flowComparator = new StandardFlowComparator(
                 new StandardComparableDataFlow(
                         "Flow A",
-                        snapshotA.getFlowSnapshot().getFlowContents(),
+                        groupA,
                         null,
                         null,
                         null,
-                        new HashSet<>(snapshotA.getFlowSnapshot().getParameterContexts().values()),
+                        parameterContextsA,
                         null,
                         null
                         ),
                 new StandardComparableDataFlow(
                         "Flow B",
-                        snapshotB.getFlowSnapshot().getFlowContents(),
+                        groupB,
                         null,
                         null,
                         null,
-                        new HashSet<>(snapshotB.getFlowSnapshot().getParameterContexts().values()),
+                        parameterContextsB,
                         null,
                         null
                         ),
@@ -384,62 +395,126 @@ public class FlowDiff {
                 FlowComparatorVersionedStrategy.DEEP
             );
 
-        flowName = snapshotA.getFlowSnapshot().getFlow().getName();
-        parameterContexts = snapshotB.getFlowSnapshot().getParameterContexts();
-
-        final SortedSet<FlowDifference> sortedDiffs = new TreeSet(new Comparator<FlowDifference>() {
-            @Override
-            public int compare(FlowDifference o1, FlowDifference o2) {
-                String id1 = o1.getComponentA() == null ? String.valueOf(o1.hashCode()) : o1.getComponentA().getInstanceIdentifier() + o1.hashCode();
-                String id2 = o2.getComponentA() == null ? String.valueOf(o2.hashCode()) : o2.getComponentA().getInstanceIdentifier() + o2.hashCode();
-                return (id1 == null ? String.valueOf(o1.hashCode()) : id1).compareTo(id2 == null ? String.valueOf(o2.hashCode()) : id2);
+        final Set<FlowDifference> differences = new HashSet<>();
+        for (FlowDifference difference : flowComparator.compare().getDifferences()) {
+            if (filter.test(difference)) {
+                differences.add(difference);
             }
-        });
-        sortedDiffs.addAll(flowComparator.compare().getDifferences());
+        }
+        return differences;
+    }
 
-        return sortedDiffs;
+    JsonParser createParser(final InputStream in) throws IOException {
+        return factory.createParser(decompress(in));
     }
 
-    static FlowSnapshotContainer getFlowContainer(final String path, final JsonFactory factory) throws IOException {
-        final File snapshotFile = new File(path);
-        try (final JsonParser parser = factory.createParser(snapshotFile)) {
-            final RegisteredFlowSnapshot snapshot = parser.readValueAs(RegisteredFlowSnapshot.class);
+    static FlowSnapshotContainer getFlowContainer(final String path, final ObjectReader reader) throws IOException {
+        try (final JsonParser parser = reader.createParser(decompress(Files.newInputStream(Paths.get(path))))) {
+            final RegisteredFlowSnapshot snapshot = reader.readValue(parser);
             return new FlowSnapshotContainer(snapshot);
         }
     }
 
-    static String printParameterContext(final VersionedParameterContext pc) {
-        final Map<String, String> parameters = new HashMap<>();
-        for (VersionedParameter p : pc.getParameters()) {
-            if (p.isSensitive()) {
-                parameters.put(p.getName(), "<Sensitive Value>");
-            } else {
-                parameters.put(p.getName(), p.getValue());
-            }
-        }
-        return parameters.toString();
+    // flow definitions may be gzip-compressed, which their first two bytes tell
+    static InputStream decompress(final InputStream in) throws IOException {
+        final InputStream buffered = new BufferedInputStream(in);
+        buffered.mark(2);
+        final boolean gzip = buffered.read() == 0x1f && buffered.read() == 0x8b;
+        buffered.reset();
+        return gzip ? new GZIPInputStream(buffered) : buffered;
     }
 
-    static void printProcessorProperties(final VersionedProcessor proc) {
-        for (String key : proc.getProperties().keySet()) {
-            System.out.println("  - `" + key + "` = `" + proc.getProperties().get(key) + "`");
+    public static final class Builder {
+        private boolean pruneUnchangedGroups;
+        private boolean ignoreLayoutChanges;
+        private int parallelism = 1;
+        private Path resultCacheDirectory;
+        private long resultCacheMaxBytes;
+        private Path snapshotCacheDirectory;
+        private long snapshotCacheMaxBytes;
+        private String format = DiffRenderer.MARKDOWN;
+        private DifferenceFilter filter = DifferenceFilter.ALL;
+        private boolean metrics;
+        private int maxImpactedComponents;
+        private long maxReportBytes;
+        private boolean deduplicate;
+        private Path detailsFile;
+
+        private Builder() {
         }
-    }
 
-    static String printProcessorConf(final VersionedProcessor proc) {
-        return "`" + proc.getExecutionNode() + "` nodes, `" + proc.getConcurrentlySchedulableTaskCount() + "` concurrent tasks, `"
-                + proc.getRunDurationMillis() + "ms` run duration, `" + proc.getBulletinLevel() + "` bulletin level, `"
-                + proc.getSchedulingStrategy() + "` (`" + proc.getSchedulingPeriod() + "`), `"
-                + proc.getPenaltyDuration() + "` penalty duration, `" + proc.getYieldDuration() + "` yield duration";
-    }
+        // share the strings, bundles and property descriptors repeated across components and snapshots
+        public Builder deduplicate(final boolean deduplicate) {
+            this.deduplicate = deduplicate;
+            return this;
+        }
 
-    static void printControllerProperties(final VersionedControllerService cs) {
-        for (String key : cs.getProperties().keySet()) {
-            System.out.println("  - `" + key + "` = `" + cs.getProperties().get(key) + "`");
+        // hash process group subtrees and components first, and only compare the ones that differ
+        public Builder pruneUnchangedGroups(final boolean pruneUnchangedGroups) {
+            this.pruneUnchangedGroups = pruneUnchangedGroups;
+            return this;
+        }
+
+        // do not report components that were only moved on the canvas
+        public Builder ignoreLayoutChanges(final boolean ignoreLayoutChanges) {
+            this.ignoreLayoutChanges = ignoreLayoutChanges;
+            return this;
+        }
+
+        // compare sibling process groups on a fork/join pool with this many threads, 1 compares on the calling thread
+        public Builder parallelism(final int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        // keep rendered reports in this directory, keyed by the contents of both flow definitions
+        public Builder resultCache(final Path directory, final long maxBytes) {
+            this.resultCacheDirectory = directory;
+            this.resultCacheMaxBytes = maxBytes;
+            return this;
+        }
+
+        // keep parsed snapshots in this directory in a binary format, keyed by the contents of the flow definition
+        public Builder snapshotCache(final Path directory, final long maxBytes) {
+            this.snapshotCacheDirectory = directory;
+            this.snapshotCacheMaxBytes = maxBytes;
+            return this;
+        }
+
+        // differences to report, the others are dropped as soon as each comparison task returns them
+        public Builder filter(final DifferenceFilter filter) {
+            this.filter = filter;
+            return this;
+        }
+
+        // records the time, allocations and heap of each phase, and counts of components and differences
+        public Builder metrics(final boolean metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        // output format of the reports: markdown, jsonl or sarif
+        public Builder format(final String format) {
+            this.format = format;
+            return this;
+        }
+
+        // list the components downstream of each changed component, up to this many per component, 0 disables it
+        public Builder downstreamImpact(final int maxComponents) {
+            this.maxImpactedComponents = maxComponents;
+            return this;
+        }
+
+        // keep the Markdown report within this many bytes by summarizing the differences that do not fit, 0 for no
+        // limit, the full report being written to the details file when one is given
+        public Builder maxReportBytes(final long maxBytes, final Path detailsFile) {
+            this.maxReportBytes = maxBytes;
+            this.detailsFile = detailsFile;
+            return this;
         }
-    }
 
-    static boolean isEmpty(final String string) {
-        return string == null || string.isEmpty();
+        public FlowDiff build() {
+            return new FlowDiff(this);
+        }
     }
 }
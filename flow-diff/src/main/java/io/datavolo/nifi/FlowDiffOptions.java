@@ -0,0 +1,105 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line arguments: positional arguments plus {@code --name value} options.
+ */
+class FlowDiffOptions {
+
+    static final String BATCH = "batch";
+    static final String CHANGED = "changed";
+    static final String ROOT_A = "root-a";
+    static final String ROOT_B = "root-b";
+    static final String THREADS = "threads";
+    static final String SERVER = "server";
+    static final String PRUNE_UNCHANGED = "prune-unchanged";
+    static final String IGNORE_LAYOUT = "ignore-layout";
+    static final String PARALLELISM = "parallelism";
+    static final String CACHE_DIR = "cache-dir";
+    static final String CACHE_SIZE = "cache-size";
+    static final String SNAPSHOT_CACHE_DIR = "snapshot-cache-dir";
+    static final String SNAPSHOT_CACHE_SIZE = "snapshot-cache-size";
+    static final String CHAIN = "chain";
+    static final String GIT_RANGE = "git-range";
+    static final String END_TO_END = "end-to-end";
+    static final String FORMAT = "format";
+    static final String INCLUDE_TYPES = "include-types";
+    static final String EXCLUDE_TYPES = "exclude-types";
+    static final String INCLUDE_COMPONENTS = "include-components";
+    static final String EXCLUDE_COMPONENTS = "exclude-components";
+    static final String METRICS_FILE = "metrics-file";
+    static final String VERSION = "version";
+    static final String SCAN = "scan";
+    static final String IMPACT = "impact";
+    static final String MAX_BYTES = "max-bytes";
+    static final String DETAILS_FILE = "details-file";
+    static final String DEDUPLICATE = "deduplicate";
+
+    // options that do not take a value
+    private static final Set<String> FLAGS = Set.of(PRUNE_UNCHANGED, IGNORE_LAYOUT, CHAIN, END_TO_END, VERSION, SCAN, DEDUPLICATE);
+
+    private final List<String> positionals = new ArrayList<>();
+    private final Map<String, String> options = new HashMap<>();
+
+    static FlowDiffOptions parse(final String[] args) {
+        final FlowDiffOptions parsed = new FlowDiffOptions();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--")) {
+                final String name = args[i].substring(2);
+                if (FLAGS.contains(name)) {
+                    parsed.options.put(name, "true");
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for option --" + name);
+                }
+                parsed.options.put(name, args[++i]);
+            } else {
+                parsed.positionals.add(args[i]);
+            }
+        }
+        return parsed;
+    }
+
+    boolean has(final String name) {
+        return options.containsKey(name);
+    }
+
+    String get(final String name) {
+        return options.get(name);
+    }
+
+    String getRequired(final String name) {
+        final String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing required option --" + name);
+        }
+        return value;
+    }
+
+    int getInt(final String name, final int defaultValue) {
+        final String value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    String getPositional(final int index) {
+        if (index >= positionals.size()) {
+            throw new IllegalArgumentException("Expected two flow definitions to compare");
+        }
+        return positionals.get(index);
+    }
+
+    List<String> getPositionals() {
+        return positionals;
+    }
+}
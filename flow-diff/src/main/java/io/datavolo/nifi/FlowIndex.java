@@ -0,0 +1,143 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.nifi.flow.ConnectableComponent;
+import org.apache.nifi.flow.VersionedComponent;
+import org.apache.nifi.flow.VersionedConnection;
+import org.apache.nifi.flow.VersionedProcessGroup;
+import org.apache.nifi.flow.VersionedRemoteProcessGroup;
+
+/**
+ * Lookups on the process group tree of one snapshot, built once per snapshot with a single walk of the tree. The
+ * path of a group is the names of the groups from the root down to it, the root group having the path {@code /}. A
+ * {@code /} or {@code \} in a name is escaped with a {@code \}, so that a group named {@code A/B} cannot be mistaken
+ * for a group {@code B} inside a group {@code A}. Processors, controller services, connections, ports, funnels and
+ * remote process groups are indexed by identifier along with the group that contains them, so that the path of a
+ * component or of a connection endpoint is found in constant time.
+ */
+final class FlowIndex {
+
+    static final String ROOT_PATH = "/";
+
+    private final Map<String, String> groupPaths = new HashMap<>();
+    private final Map<String, VersionedComponent> components = new HashMap<>();
+    // identifier of the group containing each indexed component, groups included
+    private final Map<String, String> parentGroups = new HashMap<>();
+    private final List<VersionedConnection> connections = new ArrayList<>();
+
+    FlowIndex(final VersionedProcessGroup root) {
+        if (root == null) {
+            return;
+        }
+
+        final Deque<VersionedProcessGroup> groups = new ArrayDeque<>();
+        groupPaths.put(root.getIdentifier(), ROOT_PATH);
+        components.put(root.getIdentifier(), root);
+        groups.push(root);
+        while (!groups.isEmpty()) {
+            final VersionedProcessGroup group = groups.pop();
+            final String groupId = group.getIdentifier();
+            add(groupId, group.getProcessors());
+            add(groupId, group.getControllerServices());
+            add(groupId, group.getConnections());
+            if (group.getConnections() != null) {
+                connections.addAll(group.getConnections());
+            }
+            add(groupId, group.getInputPorts());
+            add(groupId, group.getOutputPorts());
+            add(groupId, group.getFunnels());
+            if (group.getRemoteProcessGroups() != null) {
+                for (VersionedRemoteProcessGroup remoteGroup : group.getRemoteProcessGroups()) {
+                    add(groupId, remoteGroup);
+                    // remote ports are connection endpoints and belong to the group of the remote process group
+                    add(groupId, remoteGroup.getInputPorts());
+                    add(groupId, remoteGroup.getOutputPorts());
+                }
+            }
+            if (group.getProcessGroups() == null) {
+                continue;
+            }
+            final String path = groupPaths.get(groupId);
+            for (VersionedProcessGroup child : group.getProcessGroups()) {
+                groupPaths.put(child.getIdentifier(), child(path, child.getName()));
+                add(groupId, child);
+                groups.push(child);
+            }
+        }
+    }
+
+    private void add(final String groupId, final Collection<? extends VersionedComponent> group) {
+        if (group != null) {
+            for (VersionedComponent component : group) {
+                add(groupId, component);
+            }
+        }
+    }
+
+    private void add(final String groupId, final VersionedComponent component) {
+        components.put(component.getIdentifier(), component);
+        parentGroups.put(component.getIdentifier(), groupId);
+    }
+
+    // connections of every group of the snapshot
+    List<VersionedConnection> getConnections() {
+        return connections;
+    }
+
+    // null when the group is not part of the snapshot
+    String getGroupPath(final String groupIdentifier) {
+        return groupIdentifier == null ? null : groupPaths.get(groupIdentifier);
+    }
+
+    // null when the component is not part of the snapshot
+    VersionedComponent getComponent(final String identifier) {
+        return identifier == null ? null : components.get(identifier);
+    }
+
+    // path of the group containing the component, null for the root group and for components not in the snapshot
+    String getParentPath(final String identifier) {
+        return identifier == null ? null : getGroupPath(parentGroups.get(identifier));
+    }
+
+    // path of a group, or path of the group containing the component followed by its name, null when unknown
+    String getPath(final VersionedComponent component) {
+        if (component == null) {
+            return null;
+        }
+        final String groupPath = groupPaths.get(component.getIdentifier());
+        return groupPath == null ? child(getParentPath(component.getIdentifier()), component.getName()) : groupPath;
+    }
+
+    // path of a connection endpoint, resolved with the group given by the endpoint when it is not indexed
+    String getPath(final ConnectableComponent endpoint) {
+        if (endpoint == null) {
+            return null;
+        }
+        final VersionedComponent component = getComponent(endpoint.getId());
+        return component == null ? child(getGroupPath(endpoint.getGroupId()), endpoint.getName()) : getPath(component);
+    }
+
+    private static String child(final String groupPath, final String name) {
+        return groupPath == null ? null : (ROOT_PATH.equals(groupPath) ? groupPath : groupPath + "/") + segment(name);
+    }
+
+    // the name as one segment of a path
+    static String segment(final String name) {
+        if (name == null || name.indexOf('/') < 0 && name.indexOf('\\') < 0) {
+            return name;
+        }
+        return name.replace("\\", "\\\\").replace("/", "\\/");
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.nifi.flow.Bundle;
+import org.apache.nifi.flow.ConnectableComponent;
+import org.apache.nifi.flow.VersionedComponent;
+import org.apache.nifi.flow.VersionedConnection;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+
+/**
+ * One JSON object per line and per difference, for tools that consume the results without scraping Markdown:
+ * {@code {"flow":…,"type":…,"componentType":…,"componentId":…,"componentName":…,"groupId":…,"path":…,"field":…,
+ * "valueA":…,"valueB":…,"description":…}}, connections also having the paths of their source and destination. With
+ * the downstream impact analysis, changed components also have the paths of the components downstream of them.
+ * Values of sensitive parameters are masked as in the Markdown report.
+ */
+class JsonLinesRenderer implements DiffRenderer {
+
+    static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .disable(StreamWriteFeature.AUTO_CLOSE_CONTENT)
+            .build();
+
+    @Override
+    public void render(final Writer out, final DiffResult result, final String title) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            for (FlowDifference diff : result.getDifferences()) {
+                generator.writeStartObject();
+                generator.writeStringField("flow", result.getFlowName());
+                if (title != null) {
+                    generator.writeStringField("title", title);
+                }
+                generator.writeStringField("type", diff.getDifferenceType().name());
+                writeComponentFields(generator, ChangedComponents.component(diff));
+                writePathFields(generator, result, diff);
+                writeImpactFields(generator, result, diff);
+                if (diff.getFieldName().isPresent()) {
+                    generator.writeStringField("field", diff.getFieldName().get());
+                }
+                generator.writeStringField("valueA", value(diff, result.getParametersA(), diff.getComponentA(), diff.getValueA()));
+                generator.writeStringField("valueB", value(diff, result.getParametersB(), diff.getComponentB(), diff.getValueB()));
+                generator.writeStringField("description", diff.getDescription());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    @Override
+    public void message(final Writer out, final String text, final boolean error) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("level", error ? "error" : "note");
+            generator.writeStringField("message", text);
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+    }
+
+    static void writeComponentFields(final JsonGenerator generator, final VersionedComponent component) throws IOException {
+        if (component == null) {
+            return;
+        }
+        generator.writeStringField("componentType", component.getComponentType() == null ? null : component.getComponentType().name());
+        generator.writeStringField("componentId", component.getIdentifier());
+        generator.writeStringField("componentName", component.getName());
+        generator.writeStringField("groupId", component.getGroupIdentifier());
+    }
+
+    // full path of the component and, for connections, of their endpoints, resolved in the snapshot of the component
+    static void writePathFields(final JsonGenerator generator, final DiffResult result, final FlowDifference diff) throws IOException {
+        final VersionedComponent component = ChangedComponents.component(diff);
+        if (component == null) {
+            return;
+        }
+        final FlowIndex index = ChangedComponents.index(result, diff);
+        final String path = index.getPath(component);
+        if (path != null) {
+            generator.writeStringField("path", path);
+        }
+        if (component instanceof VersionedConnection) {
+            final VersionedConnection connection = (VersionedConnection) component;
+            generator.writeStringField("source", index.getPath(connection.getSource()));
+            generator.writeStringField("destination", index.getPath(connection.getDestination()));
+        }
+    }
+
+    // paths of the components downstream of the changed component, when the analysis is enabled
+    static void writeImpactFields(final JsonGenerator generator, final DiffResult result, final FlowDifference diff) throws IOException {
+        final DownstreamImpact.Impact impact = diff.getComponentB() == null ? null : result.getImpacts().get(diff.getComponentB().getIdentifier());
+        if (impact == null) {
+            return;
+        }
+        generator.writeArrayFieldStart("downstream");
+        for (VersionedComponent downstream : impact.getComponents()) {
+            generator.writeString(result.getIndexB().getPath(downstream));
+        }
+        generator.writeEndArray();
+        if (impact.isTruncated()) {
+            generator.writeBooleanField("downstreamTruncated", true);
+        }
+    }
+
+    static String value(final FlowDifference diff, final ParameterIndex parameters, final VersionedComponent component, final Object value) {
+        switch (diff.getDifferenceType()) {
+        case PARAMETER_ADDED:
+        case PARAMETER_VALUE_CHANGED:
+        case PARAMETER_REMOVED:
+            return component == null || diff.getFieldName().isEmpty() ? null
+                    : ParameterIndex.value(parameters.get(component.getName(), diff.getFieldName().get()));
+        default:
+            break;
+        }
+
+        if (value == null) {
+            return null;
+        } else if (value instanceof ConnectableComponent) {
+            return ((ConnectableComponent) value).getName();
+        } else if (value instanceof Bundle) {
+            final Bundle bundle = (Bundle) value;
+            return bundle.getGroup() + ":" + bundle.getArtifact() + ":" + bundle.getVersion();
+        }
+        return value.toString();
+    }
+}
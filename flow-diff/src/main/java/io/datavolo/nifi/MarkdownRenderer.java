@@ -0,0 +1,419 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+
+import org.apache.nifi.flow.Bundle;
+import org.apache.nifi.flow.ComponentType;
+import org.apache.nifi.flow.ConnectableComponent;
+import org.apache.nifi.flow.VersionedComponent;
+import org.apache.nifi.flow.VersionedConnection;
+import org.apache.nifi.flow.VersionedControllerService;
+import org.apache.nifi.flow.VersionedParameter;
+import org.apache.nifi.flow.VersionedParameterContext;
+import org.apache.nifi.flow.VersionedProcessGroup;
+import org.apache.nifi.flow.VersionedProcessor;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+
+/**
+ * The human readable report posted on pull requests: one Markdown bullet per difference. Components of the root
+ * group are named as they are, components of child groups and connection endpoints by their full path.
+ */
+class MarkdownRenderer implements DiffRenderer {
+
+    @Override
+    public Report start(final Writer out) {
+        final PrintWriter printer = printer(out);
+        printBanner(printer);
+        printer.flush();
+        return new Report(out);
+    }
+
+    @Override
+    public void render(final Writer out, final DiffResult result, final String title) {
+        final PrintWriter printer = printer(out);
+        if (title != null) {
+            printer.println("## " + title);
+        }
+        printDiff(printer, result);
+        printer.flush();
+    }
+
+    @Override
+    public void message(final Writer out, final String text, final boolean error) {
+        final PrintWriter printer = printer(out);
+        printer.println("### " + text);
+        printer.flush();
+    }
+
+    private static PrintWriter printer(final Writer out) {
+        return out instanceof PrintWriter ? (PrintWriter) out : new PrintWriter(out);
+    }
+
+    static void printBanner(final PrintWriter out) {
+        out.println("> [!NOTE]");
+        out.println("> # ![datavolo.io](https://docs.datavolo.io/img/logo-without-name.svg) Datavolo NiFi Flow Diff");
+        out.println("> This GitHub Action is created and maintained by [Datavolo](https://datavolo.io/).");
+    }
+
+    static void printDiff(final PrintWriter out, final DiffResult result) {
+        out.println("### Executing Datavolo Flow Diff for flow: `" + result.getFlowName() + "`");
+
+        for(FlowDifference diff : result.getDifferences()) {
+            printDifference(out, result, diff);
+        }
+
+        printImpacts(out, result);
+    }
+
+    static void printDifference(final PrintWriter out, final DiffResult result, final FlowDifference diff) {
+        final FlowIndex indexA = result.getIndexA();
+        final FlowIndex indexB = result.getIndexB();
+
+        switch (diff.getDifferenceType()) {
+        case COMPONENT_ADDED: {
+            if (diff.getComponentB().getComponentType().equals(ComponentType.FUNNEL)) {
+                out.println("- A Funnel has been added");
+            } else if (diff.getComponentB().getComponentType().equals(ComponentType.CONNECTION)) {
+                final VersionedConnection connection = (VersionedConnection) diff.getComponentB();
+                if (connection.getSource().getId().equals(connection.getDestination().getId())) {
+                    out.println("- A self-loop connection `"
+                            + (isEmpty(connection.getName()) ? connection.getSelectedRelationships().toString() : connection.getName())
+                            + "` has been added on `" + name(indexB, connection.getSource()) + "`");
+                } else {
+                    out.println("- A connection `"
+                            + (isEmpty(connection.getName()) ? connection.getSelectedRelationships().toString() : connection.getName())
+                            + "` from `" + name(indexB, connection.getSource()) + "` to `" + name(indexB, connection.getDestination())
+                            + "` has been added");
+                }
+            } else if (diff.getComponentB().getComponentType().equals(ComponentType.PROCESSOR)) {
+                final VersionedProcessor proc = (VersionedProcessor) diff.getComponentB();
+                out.println("- A Processor"
+                        + (isEmpty(diff.getComponentB().getName()) ? "" : " `" + name(indexB, diff.getComponentB()) + "`")
+                        + " has been added with the configuration [" + printProcessorConf(proc) + "] and the below properties:");
+                printProcessorProperties(out, proc);
+            } else if (diff.getComponentB().getComponentType().equals(ComponentType.CONTROLLER_SERVICE)) {
+                final VersionedControllerService cs = (VersionedControllerService) diff.getComponentB();
+                out.println("- A Controller Service"
+                        + (isEmpty(diff.getComponentB().getName()) ? "" : " `" + name(indexB, diff.getComponentB()) + "`")
+                        + " has been added with the below properties:");
+                printControllerProperties(out, cs);
+            } else {
+                out.println("- A " + diff.getComponentB().getComponentType().getTypeName()
+                        + (isEmpty(diff.getComponentB().getName()) ? "" : " named `" + name(indexB, diff.getComponentB()) + "`")
+                        + " has been added");
+            }
+            break;
+        }
+        case COMPONENT_REMOVED: {
+            if (diff.getComponentA().getComponentType().equals(ComponentType.FUNNEL)) {
+                out.println("- A Funnel has been removed");
+            } else {
+                out.println("- A " + diff.getComponentA().getComponentType().getTypeName()
+                        + (isEmpty(diff.getComponentA().getName()) ? "" : " named `" + name(indexA, diff.getComponentA()) + "`")
+                        + " has been removed");
+            }
+            break;
+        }
+        case DESTINATION_CHANGED: {
+            out.println("- The destination of a connection has changed from `" + name(indexA, (ConnectableComponent) diff.getValueA())
+                    + "` to `" + name(indexB, (ConnectableComponent) diff.getValueB()) + "`");
+            break;
+        }
+        case PROPERTY_CHANGED: {
+            out.println("- In the " + diff.getComponentA().getComponentType().getTypeName()
+                    + " named `" + name(indexA, diff.getComponentA()) + "`, the value of the property "
+                    + "`" + diff.getFieldName().get() + "` changed from `" + diff.getValueA()
+                    + "` to `" + diff.getValueB() + "`");
+            break;
+        }
+        case CONCURRENT_TASKS_CHANGED: {
+            out.println("- In processor `" + name(indexA, diff.getComponentA()) + "`, the number of concurrent tasks has been "
+                    + ((int) diff.getValueA() > (int) diff.getValueB() ? "decreased" : "increased")
+                    + " from `" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
+            break;
+        }
+        case BACKPRESSURE_DATA_SIZE_THRESHOLD_CHANGED: {
+            final VersionedConnection connection = (VersionedConnection) diff.getComponentA();
+            out.println("- The data size backpressure threshold for the connection `"
+                    + (isEmpty(connection.getName()) ? connection.getSelectedRelationships().toString() : connection.getName())
+                    + "` from `" + name(indexA, connection.getSource()) + "` to `" + name(indexA, connection.getDestination())
+                    + "` has been changed from `" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
+            break;
+        }
+        case BACKPRESSURE_OBJECT_THRESHOLD_CHANGED: {
+            final VersionedConnection connection = (VersionedConnection) diff.getComponentA();
+            out.println("- The flowfile number backpressure threshold for the connection `"
+                    + (isEmpty(connection.getName()) ? connection.getSelectedRelationships().toString() : connection.getName())
+                    + "` from `" + name(indexA, connection.getSource()) + "` to `" + name(indexA, connection.getDestination())
+                    + "` has been changed from `" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
+            break;
+        }
+        case BULLETIN_LEVEL_CHANGED: {
+            out.println("- In " + diff.getComponentA().getComponentType() + " named `" + name(indexA, diff.getComponentA())
+                    + "`, the bulletin level has been changed from `" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
+            break;
+        }
+        case RUN_DURATION_CHANGED: {
+            final VersionedProcessor processor = (VersionedProcessor) diff.getComponentA();
+            out.println("- In processor `" + name(indexA, processor)
+                    + "`, the Run Duration changed from "
+                    + "`" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
+            break;
+        }
+        case RUN_SCHEDULE_CHANGED: {
+            final VersionedProcessor processor = (VersionedProcessor) diff.getComponentA();
+            out.println("- In processor `" + name(indexA, processor)
+                    + "`, the Run Schedule changed from "
+                    + "`" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
+            break;
+        }
+        case AUTO_TERMINATED_RELATIONSHIPS_CHANGED: {
+            final VersionedProcessor processor = (VersionedProcessor) diff.getComponentA();
+            out.println("- In processor `" + name(indexA, processor)
+                    + "`, the list of auto-terminated relationships changed from "
+                    + "`" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
+            break;
+        }
+        case LOAD_BALANCE_STRATEGY_CHANGED: {
+            final VersionedConnection connection = (VersionedConnection) diff.getComponentA();
+            out.println("- The load balancing strategy for the connection `"
+                    + (isEmpty(connection.getName()) ? connection.getSelectedRelationships().toString() : connection.getName())
+                    + "` from `" + name(indexA, connection.getSource()) + "` to `" + name(indexA, connection.getDestination())
+                    + "` has been changed from `" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
+            break;
+        }
+        case LOAD_BALANCE_COMPRESSION_CHANGED: {
+            final VersionedConnection connection = (VersionedConnection) diff.getComponentA();
+            out.println("- The load balancing compression for the connection `"
+                    + (isEmpty(connection.getName()) ? connection.getSelectedRelationships().toString() : connection.getName())
+                    + "` from `" + name(indexA, connection.getSource()) + "` to `" + name(indexA, connection.getDestination())
+                    + "` has been changed from `" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
+            break;
+        }
+        case FLOWFILE_EXPIRATION_CHANGED: {
+            final VersionedConnection connection = (VersionedConnection) diff.getComponentA();
+            out.println("- The flow file expiration for the connection `"
+                    + (isEmpty(connection.getName()) ? connection.getSelectedRelationships().toString() : connection.getName())
+                    + "` from `" + name(indexA, connection.getSource()) + "` to `" + name(indexA, connection.getDestination())
+                    + "` has been changed from `" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
+            break;
+        }
+        case PENALTY_DURATION_CHANGED: {
+            final VersionedProcessor processor = (VersionedProcessor) diff.getComponentA();
+            out.println("- In processor `" + name(indexA, processor)
+                    + "`, the penalty duration changed from "
+                    + "`" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
+            break;
+        }
+        case PARAMETER_CONTEXT_CHANGED: {
+            final VersionedProcessGroup pg = (VersionedProcessGroup) diff.getComponentB();
+            out.println("- The parameter context `" + pg.getParameterContextName() + "` with parameters `"
+                    + result.getParametersB().describe(pg.getParameterContextName())
+                    + "` has been added to the process group `" + name(indexB, pg) + "`");
+            break;
+        }
+        case POSITION_CHANGED: {
+            out.println("- A " + diff.getComponentA().getComponentType()
+                    + (isEmpty(diff.getComponentA().getName()) ? "" : " named `" + name(indexA, diff.getComponentA()) + "`")
+                    + " has been moved to another position");
+            break;
+        }
+        case SCHEDULING_STRATEGY_CHANGED: {
+            final VersionedProcessor processor = (VersionedProcessor) diff.getComponentA();
+            out.println("- In processor named `" + name(indexA, processor)
+                    + "`, the Scheduling Strategy changed from "
+                    + "`" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
+            break;
+        }
+        case BUNDLE_CHANGED:
+            Bundle before = (Bundle) diff.getValueA();
+            Bundle after = (Bundle) diff.getValueB();
+            out.println("- The bundle `"
+                    + before.getGroup() + ":" + before.getArtifact()
+                    + "` has been changed from version "
+                    + "`" + before.getVersion() + "` to version `" + after.getVersion() + "`");
+            break;
+        case NAME_CHANGED: {
+            out.println("- A "
+                    + diff.getComponentA().getComponentType()
+                    + " has been renamed from "
+                    + "`" + diff.getValueA() + "` to `" + diff.getValueB() + "`");
+            break;
+        }
+        case PROPERTY_ADDED: {
+            final String propKey = (String) diff.getValueB();
+            String propValue = null;
+            if (diff.getComponentB() instanceof VersionedProcessor) {
+                if (((VersionedProcessor) diff.getComponentB()).getPropertyDescriptors().get(propKey).isSensitive()) {
+                    propValue = "<Sensitive Value>";
+                } else {
+                    propValue = ((VersionedProcessor) diff.getComponentB()).getProperties().get(propKey);
+                }
+            }
+            if (diff.getComponentB() instanceof VersionedControllerService) {
+                if (((VersionedControllerService) diff.getComponentB()).getPropertyDescriptors().get(propKey).isSensitive()) {
+                    propValue = "<Sensitive Value>";
+                } else {
+                    propValue = ((VersionedControllerService) diff.getComponentB()).getProperties().get(propKey);
+                }
+            }
+            out.println("- In " + diff.getComponentA().getComponentType()
+                    + " named `" + name(indexA, diff.getComponentA()) + "`, a property has been added: "
+                    + "`" + propKey + "` = `" + propValue + "`");
+            break;
+        }
+        case PROPERTY_PARAMETERIZED: {
+            final String propKey = diff.getFieldName().get();
+            String propValue = null;
+            if (diff.getComponentB() instanceof VersionedProcessor) {
+                propValue = ((VersionedProcessor) diff.getComponentB()).getProperties().get(propKey);
+            }
+            if (diff.getComponentB() instanceof VersionedControllerService) {
+                propValue = ((VersionedControllerService) diff.getComponentB()).getProperties().get(propKey);
+            }
+            out.println("- In " + diff.getComponentA().getComponentType()
+                    + " named `" + name(indexA, diff.getComponentA()) + "`, a property is now referencing a parameter: "
+                    + "`" + propKey + "` = `" + propValue + "`");
+            break;
+        }
+        case PROPERTY_PARAMETERIZATION_REMOVED: {
+            final String propKey = diff.getFieldName().get();
+            out.println("- In " + diff.getComponentA().getComponentType()
+                    + " named `" + name(indexA, diff.getComponentA())
+                    + "`, the property `" + propKey + "` is no longer referencing a parameter");
+            break;
+        }
+        case SCHEDULED_STATE_CHANGED: {
+            out.println("- In the " + diff.getComponentA().getComponentType().getTypeName()
+                    + " named `" + name(indexA, diff.getComponentA())
+                    + "`, the Schedule State changed from `"
+                    + diff.getValueA() + "` to `" + diff.getValueB() + "`");
+            break;
+        } 
+        case PARAMETER_ADDED: {
+            final String paramKey = diff.getFieldName().get();
+            final VersionedParameterContext pc = (VersionedParameterContext) diff.getComponentB();
+            final VersionedParameter param = result.getParametersB().get(pc.getName(), paramKey);
+            out.println("- In the Parameter Context `" + pc.getName() + "` a parameter has been added: `"
+                    + paramKey + "` = `" + ParameterIndex.value(param) + "`");
+            break;
+        }
+        case PARAMETER_REMOVED: {
+            final String paramKey = diff.getFieldName().get();
+            final VersionedParameterContext pc = (VersionedParameterContext) diff.getComponentB();
+            out.println("- In the Parameter Context `"+ pc.getName() + "` the parameter `" + paramKey + "` has been removed");
+            break;
+        }
+        case PROPERTY_REMOVED: {
+            final String propKey = diff.getFieldName().get();
+            out.println("- In "
+                    + diff.getComponentA().getComponentType()
+                    + " named `" + name(indexA, diff.getComponentA())
+                    + "`, the property `" + propKey + "` has been removed");
+            break;
+        }
+        case PARAMETER_VALUE_CHANGED: {
+            final String paramKey = diff.getFieldName().get();
+            final VersionedParameterContext pcBefore = (VersionedParameterContext) diff.getComponentA();
+            final VersionedParameterContext pcAfter = (VersionedParameterContext) diff.getComponentB();
+            final VersionedParameter paramBefore = result.getParametersA().get(pcBefore.getName(), paramKey);
+            final VersionedParameter paramAfter = result.getParametersB().get(pcAfter.getName(), paramKey);
+            out.println("- In the Parameter Context `" + pcAfter.getName()
+                    + "`, the value of the parameter `" + paramKey + "` has changed from `"
+                    + ParameterIndex.value(paramBefore) + "`"
+                    + " to `"
+                    + ParameterIndex.value(paramAfter) + "`");
+            break;
+        }
+        case INHERITED_CONTEXTS_CHANGED:
+            final VersionedParameterContext pc = (VersionedParameterContext) diff.getComponentA();
+            out.println("- In the Parameter Context `" + pc.getName()
+            + "`, the list of inherited parameter contexts changed from `"
+            + diff.getValueA() + "`" + " to `" + diff.getValueB() + "`");
+            break;
+        case BENDPOINTS_CHANGED:
+            final VersionedConnection connection = (VersionedConnection) diff.getComponentA();
+            out.println("- The bending points for the connection `"
+                    + (isEmpty(connection.getName()) ? connection.getSelectedRelationships().toString() : connection.getName())
+                    + "` from `" + name(indexA, connection.getSource()) + "` to `" + name(indexA, connection.getDestination())
+                    + "` have been changed");
+            break;
+        default:
+            out.println("- " + diff.getDescription() + " (" + diff.getDifferenceType() + ")");
+            out.println("  - " + diff.getValueA());
+            out.println("  - " + diff.getValueB());
+            out.println("  - " + diff.getComponentA());
+            out.println("  - " + diff.getComponentB());
+            out.println("  - " + diff.getFieldName());
+            break;
+        }
+    }
+
+    static void printImpacts(final PrintWriter out, final DiffResult result) {
+        if (result.getImpacts().isEmpty()) {
+            return;
+        }
+        out.println("#### Downstream impact");
+        for (DownstreamImpact.Impact impact : result.getImpacts().values()) {
+            final VersionedComponent component = impact.getComponent();
+            final StringBuilder line = new StringBuilder("- Changes to the ")
+                    .append(component.getComponentType().getTypeName())
+                    .append(isEmpty(component.getName()) ? "" : " `" + name(result.getIndexB(), component) + "`")
+                    .append(" reach ")
+                    .append(impact.isTruncated() ? "more than " : "")
+                    .append(impact.getComponents().size())
+                    .append(impact.getComponents().size() == 1 ? " component: " : " components: ");
+            for (int i = 0; i < impact.getComponents().size(); i++) {
+                final VersionedComponent downstream = impact.getComponents().get(i);
+                line.append(i == 0 ? "" : ", ")
+                        .append(downstream.getComponentType().getTypeName())
+                        .append(" `").append(isEmpty(downstream.getName()) ? downstream.getIdentifier() : name(result.getIndexB(), downstream)).append('`');
+            }
+            out.println(line);
+        }
+    }
+
+    static void printProcessorProperties(final PrintWriter out, final VersionedProcessor proc) {
+        for (String key : proc.getProperties().keySet()) {
+            out.println("  - `" + key + "` = `" + proc.getProperties().get(key) + "`");
+        }
+    }
+
+    static String printProcessorConf(final VersionedProcessor proc) {
+        return "`" + proc.getExecutionNode() + "` nodes, `" + proc.getConcurrentlySchedulableTaskCount() + "` concurrent tasks, `"
+                + proc.getRunDurationMillis() + "ms` run duration, `" + proc.getBulletinLevel() + "` bulletin level, `"
+                + proc.getSchedulingStrategy() + "` (`" + proc.getSchedulingPeriod() + "`), `"
+                + proc.getPenaltyDuration() + "` penalty duration, `" + proc.getYieldDuration() + "` yield duration";
+    }
+
+    static void printControllerProperties(final PrintWriter out, final VersionedControllerService cs) {
+        for (String key : cs.getProperties().keySet()) {
+            out.println("  - `" + key + "` = `" + cs.getProperties().get(key) + "`");
+        }
+    }
+
+    // the name of a component of the root group, or its full path when it is nested in a child group
+    static String name(final FlowIndex index, final VersionedComponent component) {
+        final String parentPath = index.getParentPath(component.getIdentifier());
+        return parentPath == null || FlowIndex.ROOT_PATH.equals(parentPath) ? component.getName() : index.getPath(component);
+    }
+
+    static String name(final FlowIndex index, final ConnectableComponent endpoint) {
+        final VersionedComponent component = index.getComponent(endpoint.getId());
+        if (component != null) {
+            return name(index, component);
+        }
+        final String groupPath = index.getGroupPath(endpoint.getGroupId());
+        return groupPath == null || FlowIndex.ROOT_PATH.equals(groupPath) ? endpoint.getName() : index.getPath(endpoint);
+    }
+
+    static boolean isEmpty(final String string) {
+        return string == null || string.isEmpty();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.nifi.flow.VersionedParameterContext;
+import org.apache.nifi.flow.VersionedProcessGroup;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+
+/**
+ * Compares two process group trees on a fork/join pool, splitting them at process group boundaries. Child groups
+ * that exist on both sides are compared in their own tasks, each wrapped in an identical synthetic parent so that
+ * the comparator reports the differences of the child itself exactly as it would within the full tree. The group
+ * they were taken from is compared without them, together with the child groups that were added or removed. The
+ * difference sets of all tasks are merged in a fixed order, independent of which thread ran which task. The pool is
+ * owned by the comparison and shut down by {@link #close()}.
+ */
+class ParallelFlowComparison implements AutoCloseable {
+
+    // subtrees with fewer components than this are compared in a single task
+    static final int DEFAULT_SPLIT_THRESHOLD = 200;
+
+    private static final String WRAPPER_IDENTIFIER = "flow-diff-parallel-wrapper";
+
+    private final ForkJoinPool pool;
+    private final int splitThreshold;
+
+    ParallelFlowComparison(final int parallelism) {
+        this(new ForkJoinPool(parallelism), DEFAULT_SPLIT_THRESHOLD);
+    }
+
+    ParallelFlowComparison(final ForkJoinPool pool, final int splitThreshold) {
+        this.pool = pool;
+        this.splitThreshold = splitThreshold;
+    }
+
+    Set<FlowDifference> compare(final VersionedProcessGroup groupA, final VersionedProcessGroup groupB,
+            final Set<VersionedParameterContext> parameterContextsA, final Set<VersionedParameterContext> parameterContextsB,
+            final DifferenceFilter filter) {
+        // sizes of every subtree, computed bottom-up once rather than by each task
+        final Map<VersionedProcessGroup, Integer> sizes = new IdentityHashMap<>();
+        size(groupA, sizes);
+        size(groupB, sizes);
+        return pool.invoke(new GroupComparison(groupA, groupB, parameterContextsA, parameterContextsB, filter, false, sizes));
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private final class GroupComparison extends RecursiveTask<Set<FlowDifference>> {
+        private final VersionedProcessGroup groupA;
+        private final VersionedProcessGroup groupB;
+        private final Set<VersionedParameterContext> parameterContextsA;
+        private final Set<VersionedParameterContext> parameterContextsB;
+        private final DifferenceFilter filter;
+        private final boolean wrapped;
+        private final Map<VersionedProcessGroup, Integer> sizes;
+
+        GroupComparison(final VersionedProcessGroup groupA, final VersionedProcessGroup groupB,
+                final Set<VersionedParameterContext> parameterContextsA, final Set<VersionedParameterContext> parameterContextsB,
+                final DifferenceFilter filter, final boolean wrapped, final Map<VersionedProcessGroup, Integer> sizes) {
+            this.groupA = groupA;
+            this.groupB = groupB;
+            this.parameterContextsA = parameterContextsA;
+            this.parameterContextsB = parameterContextsB;
+            this.filter = filter;
+            this.wrapped = wrapped;
+            this.sizes = sizes;
+        }
+
+        @Override
+        protected Set<FlowDifference> compute() {
+            if (sizes.get(groupA) + sizes.get(groupB) < splitThreshold) {
+                return compareDirectly(groupA, groupB);
+            }
+
+            final Map<String, VersionedProcessGroup> childrenB = new HashMap<>();
+            nullToEmpty(groupB.getProcessGroups()).forEach(child -> childrenB.put(child.getIdentifier(), child));
+
+            final List<GroupComparison> children = new ArrayList<>();
+            final Set<VersionedProcessGroup> remainingA = new HashSet<>();
+            for (VersionedProcessGroup childA : nullToEmpty(groupA.getProcessGroups())) {
+                final VersionedProcessGroup childB = childrenB.remove(childA.getIdentifier());
+                if (childB == null) {
+                    remainingA.add(childA);
+                } else {
+                    // parameter contexts are compared once, with the root group
+                    children.add(new GroupComparison(childA, childB, Set.of(), Set.of(), filter, true, sizes));
+                }
+            }
+            if (children.isEmpty()) {
+                return compareDirectly(groupA, groupB);
+            }
+            children.forEach(GroupComparison::fork);
+
+            final Set<FlowDifference> differences = compareDirectly(withChildren(groupA, remainingA), withChildren(groupB, new HashSet<>(childrenB.values())));
+            for (GroupComparison child : children) {
+                differences.addAll(child.join());
+            }
+            return differences;
+        }
+
+        private Set<FlowDifference> compareDirectly(final VersionedProcessGroup comparedA, final VersionedProcessGroup comparedB) {
+            if (wrapped) {
+                return FlowDiff.compareGroups(wrap(comparedA), wrap(comparedB), parameterContextsA, parameterContextsB, filter);
+            }
+            return FlowDiff.compareGroups(comparedA, comparedB, parameterContextsA, parameterContextsB, filter);
+        }
+    }
+
+    // a shallow copy of the group sharing its components, with the given child groups only
+    private static VersionedProcessGroup withChildren(final VersionedProcessGroup group, final Set<VersionedProcessGroup> children) {
+        final VersionedProcessGroup copy = UnchangedSubtreePruner.copyFields(group);
+        copy.setProcessors(group.getProcessors());
+        copy.setConnections(group.getConnections());
+        copy.setInputPorts(group.getInputPorts());
+        copy.setOutputPorts(group.getOutputPorts());
+        copy.setFunnels(group.getFunnels());
+        copy.setLabels(group.getLabels());
+        copy.setControllerServices(group.getControllerServices());
+        copy.setRemoteProcessGroups(group.getRemoteProcessGroups());
+        copy.setProcessGroups(children);
+        return copy;
+    }
+
+    private static VersionedProcessGroup wrap(final VersionedProcessGroup child) {
+        final VersionedProcessGroup wrapper = new VersionedProcessGroup();
+        wrapper.setIdentifier(WRAPPER_IDENTIFIER);
+        wrapper.setName(WRAPPER_IDENTIFIER);
+        wrapper.getProcessGroups().add(child);
+        return wrapper;
+    }
+
+    private static int size(final VersionedProcessGroup group, final Map<VersionedProcessGroup, Integer> sizes) {
+        int size = nullToEmpty(group.getProcessors()).size() + nullToEmpty(group.getConnections()).size()
+                + nullToEmpty(group.getInputPorts()).size() + nullToEmpty(group.getOutputPorts()).size()
+                + nullToEmpty(group.getFunnels()).size() + nullToEmpty(group.getLabels()).size()
+                + nullToEmpty(group.getControllerServices()).size() + nullToEmpty(group.getRemoteProcessGroups()).size();
+        for (VersionedProcessGroup child : nullToEmpty(group.getProcessGroups())) {
+            size += 1 + size(child, sizes);
+        }
+        sizes.put(group, size);
+        return size;
+    }
+
+    private static <T> Collection<T> nullToEmpty(final Collection<T> collection) {
+        return collection == null ? Set.of() : collection;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.nifi.flow.VersionedParameter;
+import org.apache.nifi.flow.VersionedParameterContext;
+
+/**
+ * Parameters of the parameter contexts of one snapshot, indexed by context name and parameter name. The parameters
+ * of a context include the ones it inherits: its own parameters take precedence, then the inherited contexts in the
+ * order in which they are listed. The index is built once per snapshot, so that rendering a difference on a
+ * parameter is a constant time lookup whatever the size of the context.
+ */
+public final class ParameterIndex {
+
+    static final String SENSITIVE_VALUE = "<Sensitive Value>";
+
+    private final Map<String, VersionedParameterContext> contexts = new HashMap<>();
+    private final Map<String, Map<String, VersionedParameter>> parameters = new HashMap<>();
+    private final Map<String, String> descriptions = new ConcurrentHashMap<>();
+    // whether the resolution in progress cut an inheritance cycle
+    private boolean cycleCut;
+
+    ParameterIndex(final Map<String, VersionedParameterContext> parameterContexts) {
+        for (VersionedParameterContext context : parameterContexts.values()) {
+            contexts.put(context.getName(), context);
+        }
+        for (String name : contexts.keySet()) {
+            resolve(name, new HashSet<>());
+        }
+    }
+
+    // the parameter as seen by the context, null when neither the context nor its inherited contexts define it
+    public VersionedParameter get(final String contextName, final String parameterName) {
+        return getParameters(contextName).get(parameterName);
+    }
+
+    public Map<String, VersionedParameter> getParameters(final String contextName) {
+        final Map<String, VersionedParameter> contextParameters = parameters.get(contextName);
+        return contextParameters == null ? Collections.emptyMap() : contextParameters;
+    }
+
+    // name to value of the parameters defined by the context itself, sensitive values being masked
+    String describe(final String contextName) {
+        return descriptions.computeIfAbsent(contextName, name -> {
+            final Map<String, String> values = new HashMap<>();
+            final VersionedParameterContext context = contexts.get(name);
+            if (context != null && context.getParameters() != null) {
+                for (VersionedParameter parameter : context.getParameters()) {
+                    values.put(parameter.getName(), value(parameter));
+                }
+            }
+            return values.toString();
+        });
+    }
+
+    static String value(final VersionedParameter parameter) {
+        if (parameter == null) {
+            return null;
+        }
+        return parameter.isSensitive() ? SENSITIVE_VALUE : parameter.getValue();
+    }
+
+    private Map<String, VersionedParameter> resolve(final String name, final Set<String> resolving) {
+        final Map<String, VersionedParameter> resolved = parameters.get(name);
+        final VersionedParameterContext context = contexts.get(name);
+        if (resolved != null || context == null) {
+            // already resolved or unknown
+            return resolved == null ? Collections.emptyMap() : resolved;
+        }
+        if (!resolving.add(name)) {
+            // inheriting from itself
+            cycleCut = true;
+            return Collections.emptyMap();
+        }
+        final boolean outerCycleCut = cycleCut;
+        cycleCut = false;
+
+        final Map<String, VersionedParameter> contextParameters = new HashMap<>();
+        final List<String> inherited = context.getInheritedParameterContexts();
+        if (inherited != null) {
+            // the first inherited context wins, so it is applied last
+            for (int i = inherited.size() - 1; i >= 0; i--) {
+                contextParameters.putAll(resolve(inherited.get(i), resolving));
+            }
+        }
+        if (context.getParameters() != null) {
+            for (VersionedParameter parameter : context.getParameters()) {
+                contextParameters.put(parameter.getName(), parameter);
+            }
+        }
+        resolving.remove(name);
+        final Map<String, VersionedParameter> result = Collections.unmodifiableMap(contextParameters);
+        // inside a cycle, the result misses the contexts being resolved around this one and depends on where the
+        // resolution started, so it is only kept when the resolution started here
+        if (!cycleCut || resolving.isEmpty()) {
+            parameters.put(name, result);
+        }
+        cycleCut |= outerCycleCut;
+        return result;
+    }
+}
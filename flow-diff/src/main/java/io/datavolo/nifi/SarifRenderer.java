@@ -0,0 +1,175 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.nifi.flow.ComponentType;
+import org.apache.nifi.flow.VersionedComponent;
+import org.apache.nifi.registry.flow.diff.DifferenceType;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * A SARIF 2.1.0 log with one run per compared pair of flows and one result, at level {@code note}, per difference.
+ * The difference types are the rules of the run and the changed component is the logical location of the result,
+ * qualified by its path in the flow, its identifier and NiFi component type being in the properties of the location,
+ * so that code scanning tools can list and filter the changes of a pull request.
+ */
+class SarifRenderer implements DiffRenderer {
+
+    private static final String SCHEMA = "https://json.schemastore.org/sarif-2.1.0.json";
+    private static final String INFORMATION_URI = "https://github.com/datavolo-io/datavolo-flow-diff";
+
+    @Override
+    public Report start(final Writer out) throws IOException {
+        try (JsonGenerator generator = JsonLinesRenderer.JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("$schema", SCHEMA);
+            generator.writeStringField("version", "2.1.0");
+            generator.writeArrayFieldStart("runs");
+        }
+        return new Report(out);
+    }
+
+    @Override
+    public void render(final Writer out, final DiffResult result, final String title) throws IOException {
+        try (JsonGenerator generator = JsonLinesRenderer.JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            writeTool(generator, true);
+            generator.writeObjectFieldStart("properties");
+            generator.writeStringField("flow", result.getFlowName());
+            if (title != null) {
+                generator.writeStringField("title", title);
+            }
+            generator.writeEndObject();
+
+            generator.writeArrayFieldStart("results");
+            for (FlowDifference diff : result.getDifferences()) {
+                generator.writeStartObject();
+                generator.writeStringField("ruleId", diff.getDifferenceType().name());
+                generator.writeNumberField("ruleIndex", diff.getDifferenceType().ordinal());
+                generator.writeStringField("level", "note");
+                generator.writeObjectFieldStart("message");
+                generator.writeStringField("text", diff.getDescription() == null ? diff.getDifferenceType().name() : diff.getDescription());
+                generator.writeEndObject();
+
+                final VersionedComponent component = ChangedComponents.component(diff);
+                if (component != null) {
+                    generator.writeArrayFieldStart("locations");
+                    generator.writeStartObject();
+                    generator.writeArrayFieldStart("logicalLocations");
+                    generator.writeStartObject();
+                    generator.writeStringField("name", component.getName());
+                    final String path = ChangedComponents.index(result, diff).getPath(component);
+                    if (path != null) {
+                        generator.writeStringField("fullyQualifiedName", path);
+                    }
+                    generator.writeStringField("kind", kind(component.getComponentType()));
+                    generator.writeObjectFieldStart("properties");
+                    generator.writeStringField("componentId", component.getIdentifier());
+                    if (component.getComponentType() != null) {
+                        generator.writeStringField("componentType", component.getComponentType().name());
+                    }
+                    generator.writeEndObject();
+                    generator.writeEndObject();
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                    generator.writeEndArray();
+                }
+
+                generator.writeObjectFieldStart("properties");
+                if (diff.getFieldName().isPresent()) {
+                    generator.writeStringField("field", diff.getFieldName().get());
+                }
+                generator.writeStringField("valueA", JsonLinesRenderer.value(diff, result.getParametersA(), diff.getComponentA(), diff.getValueA()));
+                generator.writeStringField("valueB", JsonLinesRenderer.value(diff, result.getParametersB(), diff.getComponentB(), diff.getValueB()));
+                if (component != null) {
+                    generator.writeStringField("groupId", component.getGroupIdentifier());
+                    JsonLinesRenderer.writePathFields(generator, result, diff);
+                    JsonLinesRenderer.writeImpactFields(generator, result, diff);
+                }
+                generator.writeEndObject();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    @Override
+    public void message(final Writer out, final String text, final boolean error) throws IOException {
+        try (JsonGenerator generator = JsonLinesRenderer.JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            writeTool(generator, false);
+            generator.writeArrayFieldStart("invocations");
+            generator.writeStartObject();
+            generator.writeBooleanField("executionSuccessful", !error);
+            generator.writeArrayFieldStart("toolExecutionNotifications");
+            generator.writeStartObject();
+            generator.writeStringField("level", error ? "error" : "note");
+            generator.writeObjectFieldStart("message");
+            generator.writeStringField("text", text);
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("results");
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    @Override
+    public String separator() {
+        return ",";
+    }
+
+    @Override
+    public void finish(final Report report) throws IOException {
+        report.getWriter().write("]}");
+        report.getWriter().write(System.lineSeparator());
+    }
+
+    // the rules are the difference types, in the order of their ordinals so that results can refer to them by index
+    private static void writeTool(final JsonGenerator generator, final boolean withRules) throws IOException {
+        generator.writeObjectFieldStart("tool");
+        generator.writeObjectFieldStart("driver");
+        generator.writeStringField("name", "Datavolo Flow Diff");
+        generator.writeStringField("version", BuildInfo.getToolVersion());
+        generator.writeStringField("informationUri", INFORMATION_URI);
+        if (withRules) {
+            generator.writeArrayFieldStart("rules");
+            for (DifferenceType type : DifferenceType.values()) {
+                generator.writeStartObject();
+                generator.writeStringField("id", type.name());
+                generator.writeObjectFieldStart("shortDescription");
+                generator.writeStringField("text", type.getDescription() == null ? type.name() : type.getDescription());
+                generator.writeEndObject();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    // the SARIF kind of a logical location, the NiFi component type being kept in its properties
+    private static String kind(final ComponentType type) {
+        if (type == null) {
+            return null;
+        }
+        switch (type) {
+        case PROCESS_GROUP:
+            return "namespace";
+        default:
+            return "resource";
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HexFormat;
+
+import org.apache.nifi.registry.flow.RegisteredFlowSnapshot;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * Cache of parsed flow snapshots in the Smile binary format, keyed by the content hash of the source file. Two
+ * files with the same contents share one entry, whatever their paths, and decoding a Smile entry is much cheaper
+ * than parsing the JSON text again. Smile back-references are enabled for both names and values, so the many
+ * repeated strings of a flow (bundle coordinates, property names, identifiers) are stored once per entry.
+ */
+class SnapshotCache {
+
+    static final int FORMAT_VERSION = 1;
+
+    private final CacheDirectory directory;
+    private final ObjectMapper smileMapper;
+    private final String salt;
+
+    SnapshotCache(final CacheDirectory directory) {
+        this.directory = directory;
+        this.smileMapper = new ObjectMapper(SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build());
+        smileMapper.setDefaultPropertyInclusion(JsonInclude.Value.construct(JsonInclude.Include.NON_NULL, JsonInclude.Include.NON_NULL));
+        smileMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        smileMapper.registerModule(SnapshotDeduplicator.module());
+        this.salt = BuildInfo.getToolVersion() + "|" + BuildInfo.getNiFiVersion() + "|" + FORMAT_VERSION;
+    }
+
+    // the snapshot decoded from the cache or given by the loader, its values being shared through the deduplicator when
+    // there is one
+    RegisteredFlowSnapshot load(final Path path, final SnapshotDeduplicator deduplicator, final SnapshotLoader loader) throws IOException {
+        final String key = key(path);
+        final byte[] entry = directory.read(key);
+        if (entry != null) {
+            try {
+                return decode(entry, deduplicator);
+            } catch (IOException e) {
+                // unreadable entry, parsed again and replaced below
+            }
+        }
+
+        final RegisteredFlowSnapshot snapshot = loader.load(path);
+        directory.write(key, encode(snapshot));
+        return snapshot;
+    }
+
+    String key(final Path path) throws IOException {
+        final MessageDigest digest = CacheDirectory.newDigest();
+        digest.update(CacheDirectory.hash(path).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '|');
+        digest.update(salt.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    byte[] encode(final RegisteredFlowSnapshot snapshot) throws IOException {
+        return smileMapper.writeValueAsBytes(snapshot);
+    }
+
+    RegisteredFlowSnapshot decode(final byte[] entry) throws IOException {
+        return decode(entry, null);
+    }
+
+    RegisteredFlowSnapshot decode(final byte[] entry, final SnapshotDeduplicator deduplicator) throws IOException {
+        final RegisteredFlowSnapshot snapshot = SnapshotDeduplicator.reader(smileMapper.readerFor(RegisteredFlowSnapshot.class), deduplicator)
+                .readValue(entry);
+        if (snapshot.getParameterContexts() == null) {
+            snapshot.setParameterContexts(new HashMap<>());
+        }
+        return snapshot;
+    }
+
+    CacheDirectory getDirectory() {
+        return directory;
+    }
+
+    interface SnapshotLoader {
+        RegisteredFlowSnapshot load(Path path) throws IOException;
+    }
+}
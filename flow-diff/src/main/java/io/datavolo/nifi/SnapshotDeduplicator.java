@@ -0,0 +1,204 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.nifi.flow.Bundle;
+import org.apache.nifi.flow.ConnectableComponent;
+import org.apache.nifi.flow.ControllerServiceAPI;
+import org.apache.nifi.flow.VersionedComponent;
+import org.apache.nifi.flow.VersionedConfigurableExtension;
+import org.apache.nifi.flow.VersionedConnection;
+import org.apache.nifi.flow.VersionedControllerService;
+import org.apache.nifi.flow.VersionedProcessor;
+import org.apache.nifi.flow.VersionedPropertyDescriptor;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.std.DelegatingDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * Shares the values that snapshots repeat for thousands of components: property values, relationship names,
+ * scheduling settings, types, bundles and property descriptors, and whole maps of property descriptors since
+ * components of the same type have the same ones. Each component is processed as soon as it is deserialized, so the
+ * copies are dropped before the next component is read. The values are shared across the snapshots read with the
+ * same instance, which is given to a read by {@link #reader(ObjectReader, SnapshotDeduplicator)}: one instance is
+ * used per comparison, so that its values are released with its snapshots. Shared sets and maps are unmodifiable,
+ * and shared bundles and descriptors are new instances that nothing modifies, so a component has to be copied before
+ * changing them. Property names need no processing, Jackson already interning field names.
+ */
+final class SnapshotDeduplicator {
+
+    // the pool is emptied when it grows past this size, which only costs the sharing of the values seen so far. The
+    // check races with concurrent additions, so the pool may go a little past the size or lose values added while it
+    // is emptied, which is harmless since a pooled value is only ever returned for an equal key
+    private static final int MAX_ENTRIES = 1 << 20;
+
+    private final Map<Object, Object> pool = new ConcurrentHashMap<>();
+
+    // registers the deduplication on an object mapper, for every component it deserializes with a deduplicator
+    static Module module() {
+        final SimpleModule module = new SimpleModule("flow-diff-deduplication");
+        module.setDeserializerModifier(new BeanDeserializerModifier() {
+            @Override
+            public JsonDeserializer<?> modifyDeserializer(final DeserializationConfig config, final BeanDescription description,
+                    final JsonDeserializer<?> deserializer) {
+                return VersionedComponent.class.isAssignableFrom(description.getBeanClass()) ? new ComponentDeserializer(deserializer) : deserializer;
+            }
+        });
+        return module;
+    }
+
+    // the reader sharing the values of the snapshots it reads through the deduplicator, the reader itself when it is null
+    static ObjectReader reader(final ObjectReader reader, final SnapshotDeduplicator deduplicator) {
+        return deduplicator == null ? reader : reader.withAttribute(SnapshotDeduplicator.class, deduplicator);
+    }
+
+    int size() {
+        return pool.size();
+    }
+
+    void deduplicate(final VersionedComponent component) {
+        component.setGroupIdentifier(canonical(component.getGroupIdentifier()));
+        if (component instanceof VersionedConfigurableExtension) {
+            final VersionedConfigurableExtension extension = (VersionedConfigurableExtension) component;
+            extension.setType(canonical(extension.getType()));
+            extension.setBundle(bundle(extension.getBundle()));
+            if (extension.getProperties() != null) {
+                extension.getProperties().replaceAll((name, value) -> canonical(value));
+            }
+            extension.setPropertyDescriptors(descriptors(extension.getPropertyDescriptors()));
+        }
+        if (component instanceof VersionedProcessor) {
+            final VersionedProcessor processor = (VersionedProcessor) component;
+            processor.setSchedulingPeriod(canonical(processor.getSchedulingPeriod()));
+            processor.setSchedulingStrategy(canonical(processor.getSchedulingStrategy()));
+            processor.setExecutionNode(canonical(processor.getExecutionNode()));
+            processor.setPenaltyDuration(canonical(processor.getPenaltyDuration()));
+            processor.setYieldDuration(canonical(processor.getYieldDuration()));
+            processor.setBulletinLevel(canonical(processor.getBulletinLevel()));
+            processor.setAutoTerminatedRelationships(strings(processor.getAutoTerminatedRelationships()));
+            processor.setRetriedRelationships(strings(processor.getRetriedRelationships()));
+        } else if (component instanceof VersionedControllerService) {
+            final VersionedControllerService service = (VersionedControllerService) component;
+            if (service.getControllerServiceApis() != null) {
+                for (ControllerServiceAPI api : service.getControllerServiceApis()) {
+                    api.setType(canonical(api.getType()));
+                    api.setBundle(bundle(api.getBundle()));
+                }
+            }
+        } else if (component instanceof VersionedConnection) {
+            final VersionedConnection connection = (VersionedConnection) component;
+            connection.setSelectedRelationships(strings(connection.getSelectedRelationships()));
+            connection.setBackPressureDataSizeThreshold(canonical(connection.getBackPressureDataSizeThreshold()));
+            connection.setFlowFileExpiration(canonical(connection.getFlowFileExpiration()));
+            connection.setLoadBalanceStrategy(canonical(connection.getLoadBalanceStrategy()));
+            connection.setLoadBalanceCompression(canonical(connection.getLoadBalanceCompression()));
+            endpoint(connection.getSource());
+            endpoint(connection.getDestination());
+        }
+    }
+
+    private void endpoint(final ConnectableComponent endpoint) {
+        if (endpoint != null) {
+            endpoint.setGroupId(canonical(endpoint.getGroupId()));
+            endpoint.setName(canonical(endpoint.getName()));
+        }
+    }
+
+    private Bundle bundle(final Bundle bundle) {
+        if (bundle == null) {
+            return null;
+        }
+        return canonical(new Bundle(canonical(bundle.getGroup()), canonical(bundle.getArtifact()), canonical(bundle.getVersion())));
+    }
+
+    private Map<String, VersionedPropertyDescriptor> descriptors(final Map<String, VersionedPropertyDescriptor> descriptors) {
+        if (descriptors == null) {
+            return null;
+        }
+        final Map<String, VersionedPropertyDescriptor> shared = new HashMap<>(descriptors.size() * 4 / 3 + 1);
+        for (Map.Entry<String, VersionedPropertyDescriptor> entry : descriptors.entrySet()) {
+            shared.put(entry.getKey(), descriptor(entry.getValue()));
+        }
+        // descriptors do not implement equals, and once shared the maps of equal descriptors are equal
+        return canonical(shared, Collections.unmodifiableMap(shared));
+    }
+
+    private VersionedPropertyDescriptor descriptor(final VersionedPropertyDescriptor descriptor) {
+        if (descriptor == null || descriptor.getResourceDefinition() != null) {
+            return descriptor;
+        }
+        final VersionedPropertyDescriptor shared = new VersionedPropertyDescriptor();
+        shared.setName(canonical(descriptor.getName()));
+        shared.setDisplayName(canonical(descriptor.getDisplayName()));
+        shared.setIdentifiesControllerService(descriptor.getIdentifiesControllerService());
+        shared.setSensitive(descriptor.isSensitive());
+        shared.setDynamic(descriptor.isDynamic());
+        final List<Object> key = Arrays.asList(VersionedPropertyDescriptor.class, shared.getName(), shared.getDisplayName(),
+                shared.getIdentifiesControllerService(), shared.isSensitive(), shared.isDynamic());
+        return canonical(key, shared);
+    }
+
+    private Set<String> strings(final Set<String> strings) {
+        if (strings == null || strings.isEmpty()) {
+            return strings;
+        }
+        return canonical(strings, Collections.unmodifiableSet(strings));
+    }
+
+    private <T> T canonical(final T value) {
+        return value == null ? null : canonical(value, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T canonical(final Object key, final T value) {
+        if (pool.size() > MAX_ENTRIES) {
+            pool.clear();
+        }
+        final Object shared = pool.putIfAbsent(key, value);
+        return shared == null ? value : (T) shared;
+    }
+
+    private static final class ComponentDeserializer extends DelegatingDeserializer {
+
+        private static final long serialVersionUID = 1L;
+
+        ComponentDeserializer(final JsonDeserializer<?> delegate) {
+            super(delegate);
+        }
+
+        @Override
+        protected JsonDeserializer<?> newDelegatingInstance(final JsonDeserializer<?> delegate) {
+            return new ComponentDeserializer(delegate);
+        }
+
+        @Override
+        public Object deserialize(final JsonParser parser, final DeserializationContext context) throws IOException {
+            final Object value = super.deserialize(parser, context);
+            final Object deduplicator = context.getAttribute(SnapshotDeduplicator.class);
+            if (value instanceof VersionedComponent && deduplicator != null) {
+                ((SnapshotDeduplicator) deduplicator).deduplicate((VersionedComponent) value);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Markdown report that stays within a byte budget, for hosts that limit the size of comments. A section that fits the
+ * budget is the same as with the Markdown renderer. Otherwise the section starts with counts of the differences by
+ * process group, component type and difference type, followed by as many differences as the budget allows. The
+ * budget is shared by all the sections of a report: each section first gets room for its counts, and what is left
+ * goes to the differences of the sections in the order of the report. Sections are prepared concurrently, holding
+ * only the counts and the differences that could fit the budget. The full report can be written to a separate file,
+ * in the order of the report as well: each section is written to a temporary file next to it as its differences are
+ * read, and appended to it when the sections are laid out.
+ */
+class SummaryRenderer implements DiffRenderer {
+
+    // room kept for the lines telling how much was left out
+    private static final int TRAILER_BYTES = 256;
+    private static final String NEW_LINE = System.lineSeparator();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final long maxBytes;
+    private final Path detailsFile;
+    private final String banner;
+
+    SummaryRenderer(final long maxBytes, final Path detailsFile) {
+        this.maxBytes = maxBytes;
+        this.detailsFile = detailsFile;
+        final StringWriter banner = new StringWriter();
+        final PrintWriter printer = new PrintWriter(banner);
+        MarkdownRenderer.printBanner(printer);
+        printer.flush();
+        this.banner = banner.toString();
+    }
+
+    @Override
+    public Report start(final Writer out) throws IOException {
+        out.write(banner);
+        if (detailsFile == null) {
+            return new Report(out);
+        }
+        final PrintWriter details = new PrintWriter(Files.newBufferedWriter(detailsFile, StandardCharsets.UTF_8));
+        details.print(banner);
+        return new SummaryReport(out, details);
+    }
+
+    // a section on its own, without the details file of a report
+    @Override
+    public void render(final Writer out, final DiffResult result, final String title) throws IOException {
+        out.write(layout(new Report(out), List.of(prepare(result, title))).get(0));
+    }
+
+    @Override
+    public void render(final Report report, final DiffResult result, final String title) throws IOException {
+        report.getWriter().write(layout(report, List.of(prepare(result, title))).get(0));
+    }
+
+    @Override
+    public void message(final Writer out, final String text, final boolean error) throws IOException {
+        out.write("### " + text + NEW_LINE);
+    }
+
+    @Override
+    public Section prepare(final DiffResult result, final String title) throws IOException {
+        final String header = (title == null ? "" : "## " + title + NEW_LINE)
+                + "### Executing Datavolo Flow Diff for flow: `" + result.getFlowName() + "`" + NEW_LINE;
+        final DifferenceSummary summary = new DifferenceSummary(result.getIndexA(), result.getIndexB());
+        final Path fullFile = detailsFile == null ? null
+                : Files.createTempFile(detailsFile.toAbsolutePath().getParent(), detailsFile.getFileName() + ".", ".part");
+        try (PrintWriter full = fullFile == null ? null : new PrintWriter(Files.newBufferedWriter(fullFile, StandardCharsets.UTF_8))) {
+            if (full != null) {
+                full.print(header);
+            }
+
+            // differences until they exceed the whole budget, no section can show more
+            final List<String> differences = new ArrayList<>();
+            long differencesBytes = 0;
+            boolean complete = true;
+            final StringWriter buffer = new StringWriter();
+            final PrintWriter printer = new PrintWriter(buffer);
+            for (FlowDifference difference : result.getDifferences()) {
+                summary.add(difference);
+                if (!complete && full == null) {
+                    continue;
+                }
+                buffer.getBuffer().setLength(0);
+                MarkdownRenderer.printDifference(printer, result, difference);
+                printer.flush();
+                if (full != null) {
+                    full.append(buffer.getBuffer());
+                }
+                if (complete) {
+                    differencesBytes += utf8Length(buffer.getBuffer());
+                    complete = differencesBytes <= maxBytes;
+                    if (complete) {
+                        differences.add(buffer.toString());
+                    }
+                }
+            }
+
+            buffer.getBuffer().setLength(0);
+            MarkdownRenderer.printImpacts(printer, result);
+            printer.flush();
+            if (full != null) {
+                full.append(buffer.getBuffer());
+                if (full.checkError()) {
+                    throw new IOException("Failed to write " + fullFile);
+                }
+            }
+            return new SummarySection(header, summary.getTotal(), summary.lines(), differences, complete, buffer.toString(), fullFile);
+        } catch (IOException | RuntimeException e) {
+            if (fullFile != null) {
+                Files.deleteIfExists(fullFile);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public List<String> layout(final Report report, final List<Section> sections) throws IOException {
+        final PrintWriter details = report instanceof SummaryReport ? ((SummaryReport) report).details : null;
+        final long budget = maxBytes - utf8Length(banner) - TRAILER_BYTES;
+        final long[] reserved = new long[sections.size()];
+        long laterReserved = 0;
+        for (int i = 0; i < sections.size(); i++) {
+            reserved[i] = sections.get(i) instanceof SummarySection
+                    ? ((SummarySection) sections.get(i)).minimumBytes()
+                    : utf8Length(((TextSection) sections.get(i)).getText());
+            laterReserved += reserved[i];
+        }
+
+        final List<String> texts = new ArrayList<>(sections.size());
+        long used = 0;
+        for (int i = 0; i < sections.size(); i++) {
+            laterReserved -= reserved[i];
+            // the room of this section once the sections after it have room for their counts, and at least its own
+            // counts while the budget lasts
+            final long available = Math.max(budget - used - laterReserved, Math.min(reserved[i], budget - used));
+            final String text;
+            if (sections.get(i) instanceof SummarySection) {
+                final SummarySection section = (SummarySection) sections.get(i);
+                text = section.layout(available);
+                section.appendFull(details);
+            } else {
+                text = ((TextSection) sections.get(i)).getText();
+                if (details != null) {
+                    details.print(text);
+                }
+            }
+            texts.add(text);
+            used += utf8Length(text);
+        }
+        if (details != null) {
+            details.flush();
+        }
+        return texts;
+    }
+
+    @Override
+    public String encode(final Section section) throws IOException {
+        final SummarySection summarySection = (SummarySection) section;
+        final ObjectNode node = OBJECT_MAPPER.createObjectNode();
+        node.put("header", summarySection.header);
+        node.put("total", summarySection.total);
+        final ArrayNode lines = node.putArray("summary");
+        summarySection.summary.forEach(lines::add);
+        final ArrayNode differences = node.putArray("differences");
+        summarySection.differences.forEach(differences::add);
+        node.put("complete", summarySection.complete);
+        node.put("impacts", summarySection.impacts);
+        return OBJECT_MAPPER.writeValueAsString(node);
+    }
+
+    @Override
+    public Section decode(final String encoded) throws IOException {
+        final JsonNode node = OBJECT_MAPPER.readTree(encoded);
+        final List<String> summary = new ArrayList<>();
+        node.get("summary").forEach(line -> summary.add(line.asText()));
+        final List<String> differences = new ArrayList<>();
+        node.get("differences").forEach(difference -> differences.add(difference.asText()));
+        return new SummarySection(node.get("header").asText(), node.get("total").asInt(), summary, differences,
+                node.get("complete").asBoolean(), node.get("impacts").asText(), null);
+    }
+
+    @Override
+    public void finish(final Report report) throws IOException {
+        if (report instanceof SummaryReport) {
+            final PrintWriter details = ((SummaryReport) report).details;
+            details.close();
+            if (details.checkError()) {
+                throw new IOException("Failed to write " + detailsFile);
+            }
+        }
+    }
+
+    // length of the text once encoded in UTF-8, without encoding it
+    static int utf8Length(final CharSequence text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    // a report that writes its details file as its sections are laid out
+    private static final class SummaryReport extends Report {
+        private final PrintWriter details;
+
+        SummaryReport(final Writer out, final PrintWriter details) {
+            super(out);
+            this.details = details;
+        }
+    }
+
+    private final class SummarySection implements Section {
+        private final String header;
+        private final int total;
+        private final List<String> summary;
+        private final List<String> differences;
+        private final boolean complete;
+        private final String impacts;
+        // the section as written by the Markdown renderer, kept for the details file until the section is laid out
+        private final Path fullFile;
+
+        SummarySection(final String header, final int total, final List<String> summary, final List<String> differences,
+                final boolean complete, final String impacts, final Path fullFile) {
+            this.header = header;
+            this.total = total;
+            this.summary = summary;
+            this.differences = differences;
+            this.complete = complete;
+            this.impacts = impacts;
+            this.fullFile = fullFile;
+        }
+
+        // appends the whole section to the details file and removes its temporary file
+        void appendFull(final Writer details) throws IOException {
+            if (fullFile == null) {
+                return;
+            }
+            try (Reader full = Files.newBufferedReader(fullFile, StandardCharsets.UTF_8)) {
+                if (details != null) {
+                    full.transferTo(details);
+                }
+            } finally {
+                Files.delete(fullFile);
+            }
+        }
+
+        private long fullBytes() {
+            if (!complete) {
+                return Long.MAX_VALUE;
+            }
+            long bytes = utf8Length(header) + utf8Length(impacts);
+            for (String difference : differences) {
+                bytes += utf8Length(difference);
+            }
+            return bytes;
+        }
+
+        // the whole section when it is small, its counts otherwise
+        long minimumBytes() {
+            long bytes = utf8Length(header) + utf8Length(summaryTitle()) + TRAILER_BYTES;
+            for (String line : summary) {
+                bytes += utf8Length(line) + NEW_LINE.length();
+            }
+            return Math.min(fullBytes(), bytes);
+        }
+
+        private String summaryTitle() {
+            return "#### Summary of " + total + " differences" + NEW_LINE;
+        }
+
+        String layout(final long available) {
+            final StringBuilder section = new StringBuilder(header);
+            if (fullBytes() <= available) {
+                differences.forEach(section::append);
+                return section.append(impacts).toString();
+            }
+
+            final String summaryTitle = summaryTitle();
+            section.append(summaryTitle);
+            long remaining = available - utf8Length(header) - TRAILER_BYTES - utf8Length(summaryTitle);
+            int summarized = 0;
+            while (summarized < summary.size() && utf8Length(summary.get(summarized)) + NEW_LINE.length() <= remaining) {
+                section.append(summary.get(summarized)).append(NEW_LINE);
+                remaining -= utf8Length(summary.get(summarized)) + NEW_LINE.length();
+                summarized++;
+            }
+            if (summarized < summary.size()) {
+                section.append("- … and ").append(summary.size() - summarized).append(" more groups of differences").append(NEW_LINE);
+            }
+
+            final String detailsTitle = "#### Details" + NEW_LINE;
+            remaining -= utf8Length(detailsTitle);
+            int listed = 0;
+            while (listed < differences.size() && utf8Length(differences.get(listed)) <= remaining) {
+                remaining -= utf8Length(differences.get(listed));
+                listed++;
+            }
+            if (listed > 0) {
+                section.append(detailsTitle);
+                differences.subList(0, listed).forEach(section::append);
+            }
+            if (listed < total) {
+                section.append("- … and ").append(total - listed).append(" more differences")
+                        .append(detailsFile == null ? "" : ", see `" + detailsFile.getFileName() + "`").append(NEW_LINE);
+            }
+            return section.toString();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.apache.nifi.flow.VersionedComponent;
+import org.apache.nifi.flow.VersionedConnection;
+import org.apache.nifi.flow.VersionedProcessGroup;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+
+/**
+ * Removes from two process group trees everything that is identical on both sides, before they are handed to the
+ * comparator. Every component and every process group subtree gets a content hash, Merkle style: the hash of a
+ * group covers its own fields, the hashes of its components and the hashes of its child groups. Matched child
+ * groups with equal hashes are dropped from both sides, and so are matched components with equal hashes in the
+ * groups that remain, so the comparator only walks what changed. Since a pair of identical components never
+ * produces a difference, the differences found on the pruned trees are the ones found on the full trees.
+ */
+class UnchangedSubtreePruner {
+
+    private static final String[] GROUP_CHILDREN = {
+        "processGroups", "remoteProcessGroups", "processors", "inputPorts", "outputPorts", "connections", "labels", "funnels", "controllerServices"
+    };
+
+    // copies the own fields of a process group, without its components and child groups
+    private static final ObjectMapper COPY_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .registerModule(fieldsOnly(false));
+
+    private final ObjectMapper hashMapper;
+
+    /**
+     * @param ignoreLayout when true, positions and bend points are left out of the hashes, so that components that
+     *                     were only moved on the canvas are pruned as well
+     */
+    UnchangedSubtreePruner(final boolean ignoreLayout) {
+        hashMapper = new ObjectMapper()
+                .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+                .registerModule(fieldsOnly(ignoreLayout));
+    }
+
+    PrunedGroups prune(final VersionedProcessGroup groupA, final VersionedProcessGroup groupB) {
+        final Map<Object, byte[]> hashes = new IdentityHashMap<>();
+        hashTree(groupA, hashes);
+        hashTree(groupB, hashes);
+        return pruneMatched(groupA, groupB, hashes);
+    }
+
+    private PrunedGroups pruneMatched(final VersionedProcessGroup groupA, final VersionedProcessGroup groupB, final Map<Object, byte[]> hashes) {
+        final VersionedProcessGroup copyA = copyFields(groupA);
+        final VersionedProcessGroup copyB = copyFields(groupB);
+
+        keepChanged(groupA.getProcessors(), groupB.getProcessors(), copyA::setProcessors, copyB::setProcessors, hashes);
+        keepChanged(groupA.getConnections(), groupB.getConnections(), copyA::setConnections, copyB::setConnections, hashes);
+        keepChanged(groupA.getInputPorts(), groupB.getInputPorts(), copyA::setInputPorts, copyB::setInputPorts, hashes);
+        keepChanged(groupA.getOutputPorts(), groupB.getOutputPorts(), copyA::setOutputPorts, copyB::setOutputPorts, hashes);
+        keepChanged(groupA.getFunnels(), groupB.getFunnels(), copyA::setFunnels, copyB::setFunnels, hashes);
+        keepChanged(groupA.getLabels(), groupB.getLabels(), copyA::setLabels, copyB::setLabels, hashes);
+        keepChanged(groupA.getControllerServices(), groupB.getControllerServices(), copyA::setControllerServices, copyB::setControllerServices, hashes);
+        keepChanged(groupA.getRemoteProcessGroups(), groupB.getRemoteProcessGroups(), copyA::setRemoteProcessGroups, copyB::setRemoteProcessGroups, hashes);
+
+        copyA.setProcessGroups(new HashSet<>());
+        copyB.setProcessGroups(new HashSet<>());
+        final Map<String, VersionedProcessGroup> childrenB = byIdentifier(groupB.getProcessGroups());
+        for (VersionedProcessGroup childA : nullToEmpty(groupA.getProcessGroups())) {
+            final VersionedProcessGroup childB = childrenB.remove(childA.getIdentifier());
+            if (childB == null) {
+                copyA.getProcessGroups().add(childA);
+            } else if (!Arrays.equals(hashes.get(childA), hashes.get(childB))) {
+                final PrunedGroups prunedChildren = pruneMatched(childA, childB, hashes);
+                copyA.getProcessGroups().add(prunedChildren.getGroupA());
+                copyB.getProcessGroups().add(prunedChildren.getGroupB());
+            }
+        }
+        copyB.getProcessGroups().addAll(childrenB.values());
+
+        return new PrunedGroups(copyA, copyB);
+    }
+
+    // keeps the components without a match on the other side and the matched pairs whose hashes differ
+    private static <T extends VersionedComponent> void keepChanged(final Set<T> componentsA, final Set<T> componentsB,
+            final Consumer<Set<T>> setA, final Consumer<Set<T>> setB, final Map<Object, byte[]> hashes) {
+        final Set<T> keptA = new HashSet<>();
+        final Set<T> keptB = new HashSet<>();
+        final Map<String, T> remainingB = byIdentifier(componentsB);
+        for (T componentA : nullToEmpty(componentsA)) {
+            final T componentB = remainingB.remove(componentA.getIdentifier());
+            if (componentB == null || !Arrays.equals(hashes.get(componentA), hashes.get(componentB))) {
+                keptA.add(componentA);
+                if (componentB != null) {
+                    keptB.add(componentB);
+                }
+            }
+        }
+        keptB.addAll(remainingB.values());
+        setA.accept(keptA);
+        setB.accept(keptB);
+    }
+
+    private byte[] hashTree(final VersionedProcessGroup group, final Map<Object, byte[]> hashes) {
+        final MessageDigest digest = newDigest();
+        digest.update(hash(group));
+        hashComponents(group.getProcessors(), digest, hashes);
+        hashComponents(group.getConnections(), digest, hashes);
+        hashComponents(group.getInputPorts(), digest, hashes);
+        hashComponents(group.getOutputPorts(), digest, hashes);
+        hashComponents(group.getFunnels(), digest, hashes);
+        hashComponents(group.getLabels(), digest, hashes);
+        hashComponents(group.getControllerServices(), digest, hashes);
+        hashComponents(group.getRemoteProcessGroups(), digest, hashes);
+
+        for (VersionedProcessGroup child : sorted(group.getProcessGroups())) {
+            digest.update(child.getIdentifier().getBytes(StandardCharsets.UTF_8));
+            digest.update(hashTree(child, hashes));
+        }
+
+        final byte[] treeHash = digest.digest();
+        hashes.put(group, treeHash);
+        return treeHash;
+    }
+
+    private void hashComponents(final Collection<? extends VersionedComponent> components, final MessageDigest digest, final Map<Object, byte[]> hashes) {
+        for (VersionedComponent component : sorted(components)) {
+            final byte[] componentHash = hash(component);
+            hashes.put(component, componentHash);
+            digest.update(componentHash);
+        }
+    }
+
+    // for process groups only the own fields of the group are serialized, children are hashed separately
+    private byte[] hash(final Object value) {
+        final MessageDigest digest = newDigest();
+        try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            hashMapper.writeValue(out, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to hash " + value, e);
+        }
+        return digest.digest();
+    }
+
+    static VersionedProcessGroup copyFields(final VersionedProcessGroup group) {
+        return COPY_MAPPER.convertValue(group, VersionedProcessGroup.class);
+    }
+
+    private static <T extends VersionedComponent> List<T> sorted(final Collection<T> components) {
+        final List<T> sorted = new ArrayList<>(nullToEmpty(components));
+        sorted.sort(Comparator.comparing(VersionedComponent::getIdentifier, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return sorted;
+    }
+
+    private static <T extends VersionedComponent> Map<String, T> byIdentifier(final Collection<T> components) {
+        final Map<String, T> byIdentifier = new HashMap<>();
+        for (T component : nullToEmpty(components)) {
+            byIdentifier.put(component.getIdentifier(), component);
+        }
+        return byIdentifier;
+    }
+
+    private static <T> Collection<T> nullToEmpty(final Collection<T> collection) {
+        return collection == null ? Set.of() : collection;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static SimpleModule fieldsOnly(final boolean ignoreLayout) {
+        final SimpleModule module = new SimpleModule();
+        module.setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public List<BeanPropertyWriter> changeProperties(final SerializationConfig config, final BeanDescription beanDesc,
+                    final List<BeanPropertyWriter> beanProperties) {
+                final Class<?> beanClass = beanDesc.getBeanClass();
+                if (VersionedProcessGroup.class.isAssignableFrom(beanClass)) {
+                    beanProperties.removeIf(property -> Arrays.asList(GROUP_CHILDREN).contains(property.getName()));
+                }
+                if (ignoreLayout && VersionedComponent.class.isAssignableFrom(beanClass)) {
+                    beanProperties.removeIf(property -> "position".equals(property.getName()));
+                }
+                if (ignoreLayout && VersionedConnection.class.isAssignableFrom(beanClass)) {
+                    beanProperties.removeIf(property -> "bends".equals(property.getName()));
+                }
+                return beanProperties;
+            }
+        });
+        return module;
+    }
+
+    static final class PrunedGroups {
+        private final VersionedProcessGroup groupA;
+        private final VersionedProcessGroup groupB;
+
+        PrunedGroups(final VersionedProcessGroup groupA, final VersionedProcessGroup groupB) {
+            this.groupA = groupA;
+            this.groupB = groupB;
+        }
+
+        VersionedProcessGroup getGroupA() {
+            return groupA;
+        }
+
+        VersionedProcessGroup getGroupB() {
+            return groupB;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import static io.datavolo.nifi.TestFlows.FLOWS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchDiffTest {
+
+    @Test
+    void testBatchKeepsManifestOrder(@TempDir Path tempDir) throws IOException {
+        final StringBuilder manifest = new StringBuilder("# flowA flowB\n");
+        for (int i = FLOWS.length - 1; i > 0; i--) {
+            manifest.append(FLOWS[i - 1]).append('\t').append(FLOWS[i]).append('\n');
+        }
+        final Path manifestFile = tempDir.resolve("manifest.txt");
+        Files.writeString(manifestFile, manifest);
+
+        final List<BatchDiff.FlowPair> pairs = BatchDiff.readManifest(manifestFile);
+        assertEquals(FLOWS.length - 1, pairs.size());
+
+        final FlowDiff flowDiff = new FlowDiff();
+        final List<String> report = BatchDiff.diffAll(flowDiff, new DiffRenderer.Report(new StringWriter()), pairs, 4);
+        assertEquals(pairs.size(), report.size());
+        for (int i = 0; i < pairs.size(); i++) {
+            assertEquals(flowDiff.report(pairs.get(i).pathA.toString(), pairs.get(i).pathB.toString()), report.get(i));
+        }
+    }
+
+    @Test
+    void testChangedPathsReportAddedFlows(@TempDir Path tempDir) throws IOException {
+        final Path rootA = tempDir.resolve("original-code");
+        final Path rootB = tempDir.resolve("submitted-changes");
+        Files.createDirectories(rootA);
+        Files.createDirectories(rootB);
+        Files.copy(Paths.get(FLOWS[0]), rootA.resolve("flow.json"));
+        Files.copy(Paths.get(FLOWS[1]), rootB.resolve("flow.json"));
+        Files.copy(Paths.get(FLOWS[2]), rootB.resolve("new.json"));
+        Files.writeString(rootA.resolve("package.json"), "{\"name\": \"flows\"}");
+        Files.writeString(rootB.resolve("package.json"), "{\"name\": \"flows\", \"version\": \"1.0.0\"}");
+        final Path changed = tempDir.resolve("changed.txt");
+        Files.writeString(changed, "flow.json README.md package.json new.json");
+
+        final List<BatchDiff.FlowPair> pairs = BatchDiff.readChangedPaths(changed, rootA, rootB);
+        assertEquals(2, pairs.size());
+        assertEquals(rootB.resolve("new.json"), pairs.get(1).pathB);
+        assertNull(pairs.get(1).pathA);
+
+        final List<String> report = BatchDiff.diffAll(new FlowDiff(), new DiffRenderer.Report(new StringWriter()), pairs, 2);
+        assertTrue(report.get(0).startsWith("### Executing Datavolo Flow Diff for flow: "));
+        assertTrue(report.get(1).contains("has been added"));
+    }
+
+    @Test
+    void testScanSkipsIdenticalFlows(@TempDir Path tempDir) throws IOException {
+        final Path rootA = tempDir.resolve("original-code");
+        final Path rootB = tempDir.resolve("submitted-changes");
+        Files.createDirectories(rootA.resolve("team/flows"));
+        Files.createDirectories(rootB.resolve("team/flows"));
+        Files.createDirectories(rootB.resolve(".git"));
+        Files.copy(Paths.get(FLOWS[0]), rootA.resolve("same.json"));
+        Files.copy(Paths.get(FLOWS[0]), rootB.resolve("same.json"));
+        Files.copy(Paths.get(FLOWS[1]), rootA.resolve("team/flows/flow.json"));
+        Files.copy(Paths.get(FLOWS[2]), rootB.resolve("team/flows/flow.json"));
+        Files.copy(Paths.get(FLOWS[3]), rootA.resolve("removed.json"));
+        Files.copy(Paths.get(FLOWS[4]), rootB.resolve("team/added.json"));
+        Files.copy(Paths.get(FLOWS[5]), rootB.resolve(".git/ignored.json"));
+        Files.writeString(rootA.resolve("package.json"), "{\"name\":\"a\"}");
+        Files.writeString(rootB.resolve("package.json"), "{\"name\":\"b\"}");
+        // replaced by a file that is not a flow definition, and the other way around
+        Files.copy(Paths.get(FLOWS[0]), rootA.resolve("replaced.json"));
+        Files.writeString(rootB.resolve("replaced.json"), "{\"name\":\"b\"}");
+        Files.writeString(rootA.resolve("settings.json"), "{\"name\":\"a\"}");
+        Files.copy(Paths.get(FLOWS[0]), rootB.resolve("settings.json"));
+
+        final BatchDiff.TreeScan scan = BatchDiff.scanTrees(rootA, rootB, 4);
+        assertEquals("1 unchanged, 1 changed, 2 added, 2 removed", scan.describe());
+        assertEquals(5, scan.pairs.size());
+        assertEquals(rootA.resolve("removed.json"), scan.pairs.get(0).pathA);
+        assertEquals(rootA.resolve("replaced.json"), scan.pairs.get(1).pathA);
+        assertNull(scan.pairs.get(1).pathB);
+        assertNull(scan.pairs.get(2).pathA);
+        assertEquals(rootB.resolve("settings.json"), scan.pairs.get(2).pathB);
+        assertEquals(rootB.resolve("team/added.json"), scan.pairs.get(3).pathB);
+        assertEquals(rootA.resolve("team/flows/flow.json"), scan.pairs.get(4).pathA);
+        assertEquals(rootB.resolve("team/flows/flow.json"), scan.pairs.get(4).pathB);
+
+        final List<String> report = BatchDiff.diffAll(new FlowDiff(), new DiffRenderer.Report(new StringWriter()), scan.pairs, 2);
+        assertTrue(report.get(0).contains("has been removed"));
+        assertTrue(report.get(1).contains("has been removed"));
+        assertTrue(report.get(2).contains("has been added"));
+        assertTrue(report.get(3).contains("has been added"));
+        assertTrue(report.get(4).startsWith("### Executing Datavolo Flow Diff for flow: "));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import static io.datavolo.nifi.TestFlows.FLOWS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.nifi.registry.flow.FlowSnapshotContainer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChainDiffTest {
+
+    @Test
+    void testChainParsesEachVersionOnce() throws IOException {
+        final AtomicInteger loads = new AtomicInteger();
+        final FlowDiff counting = new FlowDiff() {
+            @Override
+            FlowSnapshotContainer load(final String path) throws IOException {
+                loads.incrementAndGet();
+                return super.load(path);
+            }
+        };
+
+        final List<String> report = ChainDiff.diffChain(counting, new DiffRenderer.Report(new StringWriter()), ChainDiff.readFiles(Arrays.asList(FLOWS)), 3, true);
+        assertEquals(FLOWS.length, loads.get());
+
+        final FlowDiff flowDiff = new FlowDiff();
+        final List<String> expected = new ArrayList<>();
+        for (int i = 1; i < FLOWS.length; i++) {
+            expected.add("## " + FLOWS[i - 1] + " → " + FLOWS[i] + System.lineSeparator() + flowDiff.report(FLOWS[i - 1], FLOWS[i]));
+        }
+        expected.add("## End to end: " + FLOWS[0] + " → " + FLOWS[FLOWS.length - 1] + System.lineSeparator()
+                + flowDiff.report(FLOWS[0], FLOWS[FLOWS.length - 1]));
+        assertEquals(expected, report);
+    }
+
+    @Test
+    void testFailedStepsReleaseTheirVersions() {
+        final FlowDiff failing = new FlowDiff() {
+            @Override
+            DiffRenderer.Section prepare(final DiffResult result, final String title) throws IOException {
+                throw new IOException("Rendering failed");
+            }
+        };
+
+        // with one thread, only two versions can be loaded until a step releases them
+        final List<String> report = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> ChainDiff.diffChain(failing, new DiffRenderer.Report(new StringWriter()), ChainDiff.readFiles(Arrays.asList(FLOWS)), 1, false));
+        assertEquals(FLOWS.length - 1, report.size());
+        for (int i = 1; i < FLOWS.length; i++) {
+            assertTrue(report.get(i - 1).contains("Unable to compare `" + FLOWS[i - 1] + "` with `" + FLOWS[i] + "`: Rendering failed"));
+        }
+    }
+
+    @Test
+    void testGitRange(@TempDir Path repository) throws IOException, InterruptedException {
+        git(repository, "init", "-q");
+        final List<String> commits = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Files.copy(Paths.get(FLOWS[i]), repository.resolve("flow.json"), StandardCopyOption.REPLACE_EXISTING);
+            git(repository, "add", "flow.json");
+            git(repository, "-c", "user.name=test", "-c", "user.email=test@example.com", "commit", "-q", "-m", "v" + (i + 1));
+            commits.add(new String(new ProcessBuilder("git", "rev-parse", "--short", "HEAD").directory(repository.toFile())
+                    .start().getInputStream().readAllBytes()).trim());
+        }
+
+        final List<ChainDiff.ChainVersion> versions = ChainDiff.readGitRange(repository, commits.get(0) + "..HEAD", "flow.json");
+        try {
+            assertEquals(3, versions.size());
+            for (int i = 0; i < 3; i++) {
+                assertTrue(versions.get(i).label.startsWith(commits.get(i)));
+                assertEquals(Files.readString(Paths.get(FLOWS[i])), Files.readString(versions.get(i).path));
+            }
+        } finally {
+            for (ChainDiff.ChainVersion version : versions) {
+                Files.deleteIfExists(version.path);
+            }
+        }
+    }
+
+    private static void git(final Path repository, final String... args) throws IOException, InterruptedException {
+        final List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(Arrays.asList(args));
+        assertEquals(0, new ProcessBuilder(command).directory(repository.toFile()).inheritIO().start().waitFor());
+    }
+}
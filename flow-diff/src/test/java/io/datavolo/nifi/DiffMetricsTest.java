@@ -0,0 +1,75 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class DiffMetricsTest {
+
+    private static final String FLOW_A = "src/test/resources/flow_v3_config_changes.json";
+    private static final String FLOW_B = "src/test/resources/flow_v4_parameters.json";
+
+    @Test
+    void testPhasesAndCounts(@TempDir Path directory) throws IOException {
+        final FlowDiff flowDiff = FlowDiff.builder().metrics(true).build();
+        final DiffResult result = flowDiff.diff(FLOW_A, FLOW_B);
+        flowDiff.render(result, null);
+
+        final DiffMetrics metrics = flowDiff.metrics;
+        assertEquals(2, metrics.getPhaseCount("load"));
+        assertEquals(1, metrics.getPhaseCount("compare"));
+        assertEquals(1, metrics.getPhaseCount("index"));
+        assertEquals(1, metrics.getPhaseCount("sort"));
+        assertEquals(1, metrics.getPhaseCount("render"));
+
+        final Map<String, Long> expected = new TreeMap<>();
+        for (FlowDifference difference : result.getDifferences()) {
+            expected.merge(difference.getDifferenceType().name(), 1L, Long::sum);
+        }
+        assertEquals(expected, metrics.getDifferenceCounts());
+
+        final Path json = directory.resolve("metrics.json");
+        metrics.write(json);
+        final JsonNode written = new ObjectMapper().readTree(json.toFile());
+        assertEquals(2, written.get("phases").get("load").get("count").asLong());
+        assertTrue(written.get("phases").get("load").get("peakHeapBytes").asLong() > 0);
+        assertTrue(written.get("components").get("b").get("PROCESSOR").asLong() > 0);
+
+        final Path prometheus = directory.resolve("flow-diff.prom");
+        metrics.write(prometheus);
+        final List<String> lines = Files.readAllLines(prometheus);
+        assertTrue(lines.contains("flow_diff_phase_runs_total{phase=\"load\"} 2"));
+        for (String line : lines) {
+            assertTrue(line.startsWith("# ") || line.matches("flow_diff_[a-z_]+\\{[^}]*\\} [0-9.E-]+"), line);
+        }
+        try (var files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void testMetricsOfFailedRunAreWritten(@TempDir Path directory) {
+        final Path json = directory.resolve("metrics.json");
+        assertThrows(IOException.class, () -> FlowDiff.main(new String[] {"--metrics-file", json.toString(), FLOW_A, "missing.json"}));
+        assertTrue(Files.exists(json));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.nifi.flow.VersionedParameter;
+import org.apache.nifi.flow.VersionedParameterContext;
+import org.apache.nifi.flow.VersionedProcessGroup;
+import org.apache.nifi.flow.VersionedProcessor;
+import org.apache.nifi.registry.flow.diff.DifferenceType;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+import org.apache.nifi.registry.flow.diff.StandardFlowDifference;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class DiffRendererTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void testMarkdownMatchesPrintDiff() throws IOException {
+        final DiffResult result = result();
+        final StringWriter expected = new StringWriter();
+        final PrintWriter out = new PrintWriter(expected);
+        MarkdownRenderer.printDiff(out, result);
+        out.flush();
+
+        final StringWriter rendered = new StringWriter();
+        DiffRenderer.forFormat(DiffRenderer.MARKDOWN).render(rendered, result, null);
+        assertEquals(expected.toString(), rendered.toString());
+    }
+
+    @Test
+    void testJsonLines() throws IOException {
+        final StringWriter rendered = new StringWriter();
+        DiffRenderer.forFormat(DiffRenderer.JSON_LINES).render(rendered, result(), "v1 → v2");
+
+        final String[] lines = rendered.toString().split("\n");
+        assertEquals(3, lines.length);
+        final JsonNode processor = MAPPER.readTree(lines[0]);
+        assertEquals("Test Flow", processor.get("flow").asText());
+        assertEquals("v1 → v2", processor.get("title").asText());
+        assertEquals("COMPONENT_ADDED", processor.get("type").asText());
+        assertEquals("PROCESSOR", processor.get("componentType").asText());
+        assertEquals("processor-1", processor.get("componentId").asText());
+        assertEquals("Properties", MAPPER.readTree(lines[1]).get("field").asText());
+
+        final JsonNode parameter = MAPPER.readTree(lines[2]);
+        assertEquals("PARAMETER_VALUE_CHANGED", parameter.get("type").asText());
+        assertEquals(ParameterIndex.SENSITIVE_VALUE, parameter.get("valueB").asText());
+    }
+
+    @Test
+    void testSarifSectionsFormOneLog() throws IOException {
+        final DiffRenderer renderer = DiffRenderer.forFormat(DiffRenderer.SARIF);
+        final StringWriter rendered = new StringWriter();
+        final DiffRenderer.Report report = renderer.start(rendered);
+        renderer.render(report, result(), null);
+        rendered.write(renderer.separator());
+        renderer.message(rendered, "The flow definition `b.json` has been added", false);
+        rendered.write(renderer.separator());
+        renderer.message(rendered, "Unable to compare `a.json` with `c.json`", true);
+        renderer.finish(report);
+
+        final JsonNode log = MAPPER.readTree(rendered.toString());
+        assertEquals("2.1.0", log.get("version").asText());
+        assertEquals(3, log.get("runs").size());
+        final JsonNode results = log.get("runs").get(0).get("results");
+        assertEquals(3, results.size());
+        assertEquals("COMPONENT_ADDED", results.get(0).get("ruleId").asText());
+        final JsonNode location = results.get(0).get("locations").get(0).get("logicalLocations").get(0);
+        assertEquals("GenerateFlowFile", location.get("name").asText());
+        assertEquals("resource", location.get("kind").asText());
+        assertEquals("processor-1", location.get("properties").get("componentId").asText());
+        assertEquals("PROCESSOR", location.get("properties").get("componentType").asText());
+        final JsonNode rules = log.get("runs").get(0).get("tool").get("driver").get("rules");
+        assertEquals(DifferenceType.values().length, rules.size());
+        assertEquals("COMPONENT_ADDED", rules.get(results.get(0).get("ruleIndex").asInt()).get("id").asText());
+        assertEquals(false, log.get("runs").get(2).get("invocations").get(0).get("executionSuccessful").asBoolean());
+    }
+
+    @Test
+    void testSarifLocationIsQualifiedByPath() throws IOException {
+        final VersionedProcessGroup root = TestFlows.group("root", "root");
+        final VersionedProcessGroup group = TestFlows.group("group-1", "Ingest/Parse", "root");
+        final VersionedProcessor processor = TestFlows.processor("processor-1", "group-1", "GenerateFlowFile");
+        group.getProcessors().add(processor);
+        root.getProcessGroups().add(group);
+        final FlowDifference added = new StandardFlowDifference(DifferenceType.COMPONENT_ADDED, null, processor, null, processor,
+                "Processor was added");
+        final DiffResult result = new DiffResult("Test Flow", Set.of(added), Map.of(), Map.of(),
+                new FlowIndex(null), new FlowIndex(root), Map.of());
+
+        final DiffRenderer renderer = DiffRenderer.forFormat(DiffRenderer.SARIF);
+        final StringWriter rendered = new StringWriter();
+        final DiffRenderer.Report report = renderer.start(rendered);
+        renderer.render(report, result, null);
+        renderer.finish(report);
+
+        final JsonNode location = MAPPER.readTree(rendered.toString()).get("runs").get(0).get("results").get(0)
+                .get("locations").get(0).get("logicalLocations").get(0);
+        assertEquals("/Ingest\\/Parse/GenerateFlowFile", location.get("fullyQualifiedName").asText());
+        assertEquals("GenerateFlowFile", location.get("name").asText());
+        assertEquals("processor-1", location.get("properties").get("componentId").asText());
+    }
+
+    @Test
+    void testUnknownFormat() {
+        assertThrows(IllegalArgumentException.class, () -> DiffRenderer.forFormat("html"));
+    }
+
+    private static DiffResult result() {
+        final VersionedProcessor processor = new VersionedProcessor();
+        processor.setIdentifier("processor-1");
+        processor.setGroupIdentifier("group-1");
+        processor.setName("GenerateFlowFile");
+        processor.setType("org.apache.nifi.processors.standard.GenerateFlowFile");
+        processor.setProperties(Map.of("File Size", "1 KB"));
+
+        final VersionedParameter secret = new VersionedParameter();
+        secret.setName("password");
+        secret.setSensitive(true);
+        secret.setValue("hunter2");
+        final VersionedParameterContext context = new VersionedParameterContext();
+        context.setIdentifier("context-1");
+        context.setName("context-1");
+        context.setParameters(Set.of(secret));
+
+        final Set<FlowDifference> differences = new LinkedHashSet<>();
+        differences.add(new StandardFlowDifference(DifferenceType.COMPONENT_ADDED, null, processor, null, processor,
+                "Processor was added"));
+        differences.add(new StandardFlowDifference(DifferenceType.PROPERTY_CHANGED, processor, processor, "Properties",
+                "0 B", "1 KB", "Property 'File Size' was changed"));
+        differences.add(new StandardFlowDifference(DifferenceType.PARAMETER_VALUE_CHANGED, context, context, "password",
+                null, null, "Parameter 'password' was changed"));
+        return new DiffResult("Test Flow", differences, Map.of("context-1", context), Map.of("context-1", context));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DiffResultCacheTest {
+
+    private static final String FLOW_A = "src/test/resources/flow_v3_config_changes.json";
+    private static final String FLOW_B = "src/test/resources/flow_v4_parameters.json";
+
+    @Test
+    void testReportIsServedFromCache(@TempDir Path cacheDir) throws IOException {
+        final FlowDiff cached = FlowDiff.builder().resultCache(cacheDir, 1024 * 1024).build();
+        final String expected = new FlowDiff().report(FLOW_A, FLOW_B);
+
+        assertEquals(expected, cached.report(FLOW_A, FLOW_B));
+        assertEquals(expected, cached.report(FLOW_A, FLOW_B));
+
+        final FlowDiff restarted = FlowDiff.builder().resultCache(cacheDir, 1024 * 1024).build();
+        assertEquals(expected, restarted.report(FLOW_A, FLOW_B));
+    }
+
+    @Test
+    void testCountersAndKeys(@TempDir Path cacheDir) throws IOException {
+        final CacheDirectory directory = new CacheDirectory(cacheDir, 1024 * 1024);
+        final DiffResultCache cache = new DiffResultCache(directory, "ignoreLayoutChanges=false");
+        final String key = cache.key(Paths.get(FLOW_A), Paths.get(FLOW_B));
+
+        assertNull(cache.get(key));
+        cache.put(key, "report");
+        assertEquals("report", cache.get(key));
+        assertEquals(1, directory.getHits());
+        assertEquals(1, directory.getMisses());
+
+        assertNotEquals(key, cache.key(Paths.get(FLOW_B), Paths.get(FLOW_A)));
+        assertNotEquals(key, new DiffResultCache(directory, "ignoreLayoutChanges=true").key(Paths.get(FLOW_A), Paths.get(FLOW_B)));
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntriesAreEvicted(@TempDir Path cacheDir) throws IOException {
+        final CacheDirectory directory = new CacheDirectory(cacheDir, 250);
+        directory.write("a", new byte[100]);
+        directory.write("b", new byte[100]);
+        Files.setLastModifiedTime(cacheDir.resolve("a.entry"), FileTime.fromMillis(1000));
+        Files.setLastModifiedTime(cacheDir.resolve("b.entry"), FileTime.fromMillis(2000));
+
+        directory.read("a");
+        directory.write("c", new byte[100]);
+
+        assertTrue(directory.contains("a"));
+        assertFalse(directory.contains("b"));
+        assertTrue(directory.contains("c"));
+        assertEquals(1, directory.getEvictions());
+    }
+
+    @Test
+    void testRewrittenEntriesAreCountedOnce(@TempDir Path cacheDir) throws IOException {
+        final CacheDirectory directory = new CacheDirectory(cacheDir, 250);
+        for (int i = 0; i < 5; i++) {
+            directory.write("a", new byte[100]);
+        }
+        directory.write("b", new byte[100]);
+
+        assertTrue(directory.contains("a"));
+        assertTrue(directory.contains("b"));
+        assertEquals(0, directory.getEvictions());
+
+        // entries written by another instance are counted once the directory has to be trimmed
+        new CacheDirectory(cacheDir, Long.MAX_VALUE).write("c", new byte[100]);
+        Files.setLastModifiedTime(cacheDir.resolve("a.entry"), FileTime.fromMillis(1000));
+        Files.setLastModifiedTime(cacheDir.resolve("b.entry"), FileTime.fromMillis(2000));
+        Files.setLastModifiedTime(cacheDir.resolve("c.entry"), FileTime.fromMillis(3000));
+        directory.write("d", new byte[60]);
+        assertFalse(directory.contains("a"));
+        assertFalse(directory.contains("b"));
+        assertTrue(directory.contains("c"));
+        assertEquals(2, directory.getEvictions());
+    }
+}
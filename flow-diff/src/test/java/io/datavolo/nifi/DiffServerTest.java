@@ -0,0 +1,127 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class DiffServerTest {
+
+    private static final String FLOW_V3 = "src/test/resources/flow_v3_config_changes.json";
+    private static final String FLOW_V4 = "src/test/resources/flow_v4_parameters.json";
+
+    private static DiffServer server;
+    private static HttpClient client;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = new DiffServer(new FlowDiff(), 0);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void testDiffFromPaths() throws Exception {
+        final URI uri = URI.create("http://localhost:" + server.getPort() + "/diff?flowA="
+                + URLEncoder.encode(FLOW_V3, StandardCharsets.UTF_8) + "&flowB=" + URLEncoder.encode(FLOW_V4, StandardCharsets.UTF_8));
+        final HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(expectedReport(FLOW_V3, FLOW_V4), response.body());
+    }
+
+    @Test
+    void testDiffFromBody() throws Exception {
+        final String body = "{\"flowA\": " + Files.readString(Paths.get(FLOW_V3)) + ", \"flowB\": " + Files.readString(Paths.get(FLOW_V4)) + "}";
+        final URI uri = URI.create("http://localhost:" + server.getPort() + "/diff");
+        final HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(expectedReport(FLOW_V3, FLOW_V4), response.body());
+    }
+
+    @Test
+    void testDiffInConfiguredFormat() throws Exception {
+        final FlowDiff flowDiff = FlowDiff.builder().format(DiffRenderer.JSON_LINES).build();
+        final DiffServer jsonLinesServer = new DiffServer(flowDiff, 0);
+        jsonLinesServer.start();
+        try {
+            final URI uri = URI.create("http://localhost:" + jsonLinesServer.getPort() + "/diff?flowA="
+                    + URLEncoder.encode(FLOW_V3, StandardCharsets.UTF_8) + "&flowB=" + URLEncoder.encode(FLOW_V4, StandardCharsets.UTF_8));
+            final HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertEquals("application/x-ndjson", response.headers().firstValue("Content-Type").orElse(null));
+            assertEquals(expectedReport(flowDiff, FLOW_V3, FLOW_V4), response.body());
+        } finally {
+            jsonLinesServer.stop();
+        }
+    }
+
+    @Test
+    void testInvalidRequest() throws Exception {
+        final URI uri = URI.create("http://localhost:" + server.getPort() + "/diff");
+        final HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.ofString("{}")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().startsWith("Unable to compare flows"));
+    }
+
+    @Test
+    void testMissingFlowDefinition() throws Exception {
+        final URI uri = URI.create("http://localhost:" + server.getPort() + "/diff?flowA="
+                + URLEncoder.encode(FLOW_V3, StandardCharsets.UTF_8) + "&flowB=" + URLEncoder.encode("missing.json", StandardCharsets.UTF_8));
+        final HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+    }
+
+    @Test
+    void testComparisonFailure() throws Exception {
+        // snapshots without contents are well-formed requests that the comparison cannot handle
+        final URI uri = URI.create("http://localhost:" + server.getPort() + "/diff");
+        final HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri)
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"flowA\": {}, \"flowB\": {}}")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(500, response.statusCode());
+        assertTrue(response.body().startsWith("Unable to compare flows"));
+    }
+
+    private static String expectedReport(final String flowA, final String flowB) throws IOException {
+        return expectedReport(new FlowDiff(), flowA, flowB);
+    }
+
+    private static String expectedReport(final FlowDiff flowDiff, final String flowA, final String flowB) throws IOException {
+        final StringWriter report = new StringWriter();
+        final PrintWriter out = new PrintWriter(report);
+        final DiffRenderer.Report started = flowDiff.getRenderer().start(out);
+        flowDiff.report(flowA, flowB, started);
+        flowDiff.getRenderer().finish(started);
+        out.flush();
+        return report.toString();
+    }
+}
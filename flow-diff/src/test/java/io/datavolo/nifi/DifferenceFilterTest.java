@@ -0,0 +1,79 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import static io.datavolo.nifi.TestFlows.FLOWS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.nifi.flow.VersionedLabel;
+import org.apache.nifi.flow.VersionedProcessor;
+import org.apache.nifi.registry.flow.diff.DifferenceType;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+import org.apache.nifi.registry.flow.diff.StandardFlowDifference;
+import org.junit.jupiter.api.Test;
+
+class DifferenceFilterTest {
+
+    @Test
+    void testFilteredDiffMatchesUnfilteredDiff() throws IOException {
+        final DifferenceFilter filter = DifferenceFilter.parse(null, "position_changed,BENDPOINTS_CHANGED", null, "LABEL,parameter-context");
+        final FlowDiff full = new FlowDiff();
+        final FlowDiff filtered = FlowDiff.builder().filter(filter).build();
+        try (FlowDiff filteredPrunedParallel = FlowDiff.builder().filter(filter).pruneUnchangedGroups(true).parallelism(4).build()) {
+            for (int i = 1; i < FLOWS.length; i++) {
+                final List<String> expected = describe(full.diff(FLOWS[i - 1], FLOWS[i]).getDifferences().stream()
+                        .filter(filter).collect(Collectors.toList()));
+                assertEquals(expected, describe(filtered.diff(FLOWS[i - 1], FLOWS[i]).getDifferences()), FLOWS[i]);
+                assertEquals(expected, describe(filteredPrunedParallel.diff(FLOWS[i - 1], FLOWS[i]).getDifferences()), FLOWS[i]);
+            }
+        }
+    }
+
+    @Test
+    void testIncludesAndExcludes() {
+        final VersionedProcessor processor = new VersionedProcessor();
+        processor.setIdentifier("processor");
+        final VersionedLabel label = new VersionedLabel();
+        label.setIdentifier("label");
+        final FlowDifference moved = new StandardFlowDifference(DifferenceType.POSITION_CHANGED, processor, processor, null, null, "moved");
+        final FlowDifference changed = new StandardFlowDifference(DifferenceType.PROPERTY_CHANGED, processor, processor, "Property", "a", "b", "changed");
+        final FlowDifference labelAdded = new StandardFlowDifference(DifferenceType.COMPONENT_ADDED, null, label, null, label, "added");
+
+        final DifferenceFilter excludeLayout = DifferenceFilter.ALL.excluding(DifferenceType.POSITION_CHANGED, DifferenceType.BENDPOINTS_CHANGED);
+        assertTrue(excludeLayout.excludesLayout());
+        assertFalse(excludeLayout.test(moved));
+        assertTrue(excludeLayout.test(changed));
+
+        final DifferenceFilter processorsOnly = DifferenceFilter.parse(null, null, "PROCESSOR", null);
+        assertTrue(processorsOnly.test(moved));
+        assertFalse(processorsOnly.test(labelAdded));
+
+        final DifferenceFilter addedOnly = new DifferenceFilter(Set.of(DifferenceType.COMPONENT_ADDED), Set.of(), Set.of(), Set.of());
+        assertFalse(addedOnly.test(changed));
+        assertTrue(addedOnly.test(labelAdded));
+        assertTrue(addedOnly.excludesLayout());
+        assertFalse(DifferenceFilter.ALL.excludesLayout());
+
+        assertThrows(IllegalArgumentException.class, () -> DifferenceFilter.parse("NOT_A_TYPE", null, null, null));
+    }
+
+    private static List<String> describe(final Iterable<FlowDifference> differences) {
+        final List<String> descriptions = new ArrayList<>();
+        for (FlowDifference diff : differences) {
+            descriptions.add(diff.getDifferenceType() + " " + diff.getFieldName().orElse("") + " " + diff.getDescription());
+        }
+        return descriptions;
+    }
+}
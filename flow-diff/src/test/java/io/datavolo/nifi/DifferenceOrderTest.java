@@ -0,0 +1,92 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import static io.datavolo.nifi.TestFlows.group;
+import static io.datavolo.nifi.TestFlows.processor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.nifi.flow.VersionedComponent;
+import org.apache.nifi.flow.VersionedFunnel;
+import org.apache.nifi.flow.VersionedProcessGroup;
+import org.apache.nifi.flow.VersionedProcessor;
+import org.apache.nifi.registry.flow.diff.DifferenceType;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+import org.apache.nifi.registry.flow.diff.StandardFlowDifference;
+import org.junit.jupiter.api.Test;
+
+class DifferenceOrderTest {
+
+    @Test
+    void testGroupPaths() {
+        final FlowIndex index = new FlowIndex(tree());
+        assertEquals("/", index.getGroupPath("root"));
+        assertEquals("/Ingest", index.getGroupPath("ingest"));
+        assertEquals("/Ingest/Parse", index.getGroupPath("parse"));
+        assertNull(index.getGroupPath("unknown"));
+    }
+
+    @Test
+    void testOrderIsStableAndLossless() {
+        final FlowIndex index = new FlowIndex(tree());
+        final VersionedProcessor rootProcessor = processor("p1", "root", "Zeta");
+        final VersionedProcessor parseProcessor = processor("p2", "parse", "Alpha");
+        final VersionedProcessor ingestProcessor = processor("p3", "ingest", "Beta");
+        final VersionedFunnel funnel = new VersionedFunnel();
+        funnel.setIdentifier("f1");
+        funnel.setGroupIdentifier("ingest");
+
+        final List<FlowDifference> expected = List.of(
+                added(rootProcessor),
+                added(funnel),
+                changed(ingestProcessor, "Properties", "a"),
+                changed(ingestProcessor, "Properties", "b"),
+                // same key and description as the previous one, both are kept
+                changed(ingestProcessor, "Properties", "b"),
+                changed(ingestProcessor, "Scheduling Period", "a"),
+                added(parseProcessor));
+
+        final Random random = new Random(42);
+        for (int i = 0; i < 10; i++) {
+            final List<FlowDifference> shuffled = new ArrayList<>(expected);
+            Collections.shuffle(shuffled, random);
+            assertEquals(descriptions(expected), descriptions(DifferenceOrder.sort(shuffled, index, index)));
+        }
+    }
+
+    private static VersionedProcessGroup tree() {
+        final VersionedProcessGroup parse = group("parse", "Parse");
+        final VersionedProcessGroup ingest = group("ingest", "Ingest");
+        ingest.setProcessGroups(Set.of(parse));
+        final VersionedProcessGroup root = group("root", "NiFi Flow");
+        root.setProcessGroups(Set.of(ingest));
+        return root;
+    }
+
+    private static FlowDifference added(final VersionedComponent component) {
+        return new StandardFlowDifference(DifferenceType.COMPONENT_ADDED, null, component, null, component, component.getIdentifier() + " added");
+    }
+
+    private static FlowDifference changed(final VersionedComponent component, final String field, final String description) {
+        return new StandardFlowDifference(DifferenceType.PROPERTY_CHANGED, component, component, field, "x", "y", description);
+    }
+
+    private static List<String> descriptions(final List<FlowDifference> differences) {
+        final List<String> descriptions = new ArrayList<>();
+        for (FlowDifference difference : differences) {
+            descriptions.add(difference.getComponentB().getIdentifier() + " " + difference.getDifferenceType() + " "
+                    + difference.getFieldName().orElse("") + " " + difference.getDescription());
+        }
+        return descriptions;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import static io.datavolo.nifi.TestFlows.endpoint;
+import static io.datavolo.nifi.TestFlows.group;
+import static io.datavolo.nifi.TestFlows.processor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.nifi.flow.PortType;
+import org.apache.nifi.flow.VersionedComponent;
+import org.apache.nifi.flow.VersionedConnection;
+import org.apache.nifi.flow.VersionedPort;
+import org.apache.nifi.flow.VersionedProcessGroup;
+import org.apache.nifi.flow.VersionedProcessor;
+import org.apache.nifi.registry.flow.diff.DifferenceType;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+import org.apache.nifi.registry.flow.diff.StandardFlowDifference;
+import org.junit.jupiter.api.Test;
+
+class DownstreamImpactTest {
+
+    // Generate → Route → (Enrich: in → Lookup → out) → Publish, and Publish loops back to Route
+    private final VersionedProcessGroup root = group("root", "Root");
+    private final VersionedProcessGroup enrich = group("enrich", "Enrich");
+    private final VersionedProcessor generate = processor("generate", "root");
+    private final VersionedProcessor route = processor("route", "root");
+    private final VersionedProcessor lookup = processor("lookup", "enrich");
+    private final VersionedProcessor publish = processor("publish", "root");
+    private final VersionedPort in = port("in", "enrich");
+    private final VersionedPort out = port("out", "enrich");
+    private final VersionedConnection generateToRoute = connection("c1", "root", generate, route);
+
+    DownstreamImpactTest() {
+        root.setProcessGroups(Set.of(enrich));
+        root.setProcessors(Set.of(generate, route, publish));
+        root.setConnections(Set.of(generateToRoute, connection("c2", "root", route, in), connection("c3", "root", out, publish),
+                connection("c4", "root", publish, route)));
+        enrich.setProcessors(Set.of(lookup));
+        enrich.setInputPorts(Set.of(in));
+        enrich.setOutputPorts(Set.of(out));
+        enrich.setConnections(Set.of(connection("c5", "enrich", in, lookup), connection("c6", "enrich", lookup, out)));
+    }
+
+    @Test
+    void testDownstreamAcrossGroups() {
+        final DownstreamImpact impact = new DownstreamImpact(new FlowIndex(root), 100);
+
+        final DownstreamImpact.Impact fromGenerate = impact.downstream(generate);
+        assertEquals(List.of("route", "in", "lookup", "out", "publish"), identifiers(fromGenerate.getComponents()));
+        assertFalse(fromGenerate.isTruncated());
+        // the cycle back to Route does not list Route as its own downstream component
+        assertEquals(List.of("in", "lookup", "out", "publish"), identifiers(impact.downstream(route).getComponents()));
+        // a connection affects its destination and everything after it
+        assertEquals(List.of("route", "in", "lookup", "out", "publish"), identifiers(impact.downstream(generateToRoute).getComponents()));
+    }
+
+    @Test
+    void testDownstreamIsCapped() {
+        final DownstreamImpact.Impact impact = new DownstreamImpact(new FlowIndex(root), 2).downstream(generate);
+        assertEquals(List.of("route", "in"), identifiers(impact.getComponents()));
+        assertTrue(impact.isTruncated());
+    }
+
+    @Test
+    void testAnalyzeSkipsLayoutChanges() {
+        final FlowIndex index = new FlowIndex(root);
+        final List<FlowDifference> differences = List.of(
+                new StandardFlowDifference(DifferenceType.POSITION_CHANGED, generate, generate, null, null, "Position changed"),
+                new StandardFlowDifference(DifferenceType.PROPERTY_CHANGED, lookup, lookup, "Key", "a", "b", "Property changed"),
+                new StandardFlowDifference(DifferenceType.RUN_SCHEDULE_CHANGED, lookup, lookup, "1 min", "5 min", "Run schedule changed"),
+                new StandardFlowDifference(DifferenceType.COMPONENT_REMOVED, route, null, route, null, "Processor was removed"));
+        final Map<String, DownstreamImpact.Impact> impacts = DownstreamImpact.analyze(differences, index, 100);
+        assertEquals(Set.of("lookup"), impacts.keySet());
+        assertEquals(List.of("out", "publish", "route", "in"), identifiers(impacts.get("lookup").getComponents()));
+
+        final StringWriter report = new StringWriter();
+        final PrintWriter printer = new PrintWriter(report);
+        MarkdownRenderer.printImpacts(printer, new DiffResult("Test Flow", differences, Map.of(), Map.of(), index, index, impacts));
+        printer.flush();
+        assertEquals("#### Downstream impact" + System.lineSeparator()
+                + "- Changes to the Processor `/Enrich/lookup` reach 4 components: Output Port `/Enrich/out`, Processor `publish`,"
+                + " Processor `route`, Input Port `/Enrich/in`" + System.lineSeparator(), report.toString());
+    }
+
+    private static List<String> identifiers(final List<VersionedComponent> components) {
+        final List<String> identifiers = new ArrayList<>();
+        components.forEach(component -> identifiers.add(component.getIdentifier()));
+        return identifiers;
+    }
+
+    private static VersionedPort port(final String identifier, final String groupIdentifier) {
+        final VersionedPort port = new VersionedPort();
+        port.setIdentifier(identifier);
+        port.setGroupIdentifier(groupIdentifier);
+        port.setName(identifier);
+        port.setType("in".equals(identifier) ? PortType.INPUT_PORT : PortType.OUTPUT_PORT);
+        return port;
+    }
+
+    private static VersionedConnection connection(final String identifier, final String groupIdentifier, final VersionedComponent source,
+            final VersionedComponent destination) {
+        final VersionedConnection connection = new VersionedConnection();
+        connection.setIdentifier(identifier);
+        connection.setGroupIdentifier(groupIdentifier);
+        connection.setSource(endpoint(source));
+        connection.setDestination(endpoint(destination));
+        return connection;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import static io.datavolo.nifi.TestFlows.FLOWS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.nifi.registry.flow.RegisteredFlowSnapshot;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class FlowDiffConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void testConcurrentDiffsMatchSequentialDiffs() throws Exception {
+        final FlowDiff flowDiff = new FlowDiff();
+
+        final Map<String, List<String>> expected = new HashMap<>();
+        for (String flowA : FLOWS) {
+            for (String flowB : FLOWS) {
+                expected.put(flowA + flowB, render(flowDiff.diff(flowA, flowB)));
+            }
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            final List<Future<Void>> futures = new ArrayList<>();
+            for (int round = 0; round < ROUNDS; round++) {
+                for (String flowA : FLOWS) {
+                    for (String flowB : FLOWS) {
+                        futures.add(executor.submit(() -> {
+                            start.await();
+                            final DiffResult result = flowDiff.diff(flowA, flowB);
+                            assertEquals(expected.get(flowA + flowB), render(result));
+                            return null;
+                        }));
+                    }
+                }
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testResultHoldsBothParameterContexts() throws IOException {
+        final DiffResult result = new FlowDiff().diff(FLOWS[2], FLOWS[3]);
+        assertEquals("test", result.getFlowName());
+        assertEquals(Set.of("Test Parameter Context"), result.getParameterContextsA().keySet());
+        assertEquals(Set.of("Test Parameter Context", "Another one to delete"), result.getParameterContextsB().keySet());
+        assertEquals(result.getDifferences().size(), FlowDiff.getDiff(FLOWS[2], FLOWS[3]).size());
+    }
+
+    @Test
+    void testComparisonLeavesSnapshotsUnchanged() throws IOException {
+        final FlowDiff flowDiff = new FlowDiff();
+        final RegisteredFlowSnapshot snapshotA = flowDiff.load(FLOWS[2]).getFlowSnapshot();
+        final RegisteredFlowSnapshot snapshotB = flowDiff.load(FLOWS[3]).getFlowSnapshot();
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final String before = objectMapper.writeValueAsString(snapshotA) + objectMapper.writeValueAsString(snapshotB);
+
+        flowDiff.diff(snapshotA, snapshotB);
+        assertEquals(before, objectMapper.writeValueAsString(snapshotA) + objectMapper.writeValueAsString(snapshotB));
+    }
+
+    // sorted lines, so that the comparison does not depend on the iteration order of the differences
+    private static List<String> render(final DiffResult result) {
+        final StringWriter writer = new StringWriter();
+        final PrintWriter out = new PrintWriter(writer);
+        MarkdownRenderer.printDiff(out, result);
+        out.flush();
+        final List<String> lines = Arrays.asList(writer.toString().split("\n"));
+        lines.sort(null);
+        return lines;
+    }
+}
@@ -9,11 +9,19 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.nifi.registry.flow.diff.DifferenceType;
 import org.apache.nifi.registry.flow.diff.FlowDifference;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 class FlowDiffTest {
 
@@ -92,4 +100,18 @@ class FlowDiffTest {
         assertTrue(diffs.stream().anyMatch(d -> d.getDifferenceType().equals(DifferenceType.PROPERTY_REMOVED)));
         assertTrue(diffs.stream().anyMatch(d -> d.getDifferenceType().equals(DifferenceType.PARAMETER_VALUE_CHANGED)));
     }
+
+    @Test
+    void testGzipFlowDefinition(@TempDir final Path directory) throws IOException {
+        final Path flow = Paths.get("src/test/resources/flow_v2_added_component.json");
+        final Path compressed = directory.resolve("flow_v2_added_component.json.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+            Files.copy(flow, out);
+        }
+
+        final FlowDiff flowDiff = new FlowDiff();
+        final ObjectMapper objectMapper = new ObjectMapper();
+        assertEquals(objectMapper.writeValueAsString(flowDiff.load(flow.toString()).getFlowSnapshot()),
+                objectMapper.writeValueAsString(flowDiff.load(compressed.toString()).getFlowSnapshot()));
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import static io.datavolo.nifi.TestFlows.endpoint;
+import static io.datavolo.nifi.TestFlows.group;
+import static io.datavolo.nifi.TestFlows.processor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.nifi.flow.ConnectableComponentType;
+import org.apache.nifi.flow.VersionedConnection;
+import org.apache.nifi.flow.VersionedPort;
+import org.apache.nifi.flow.VersionedProcessGroup;
+import org.apache.nifi.flow.VersionedProcessor;
+import org.apache.nifi.registry.flow.diff.DifferenceType;
+import org.apache.nifi.registry.flow.diff.StandardFlowDifference;
+import org.junit.jupiter.api.Test;
+
+class FlowIndexTest {
+
+    @Test
+    void testPaths() {
+        final Flow flow = new Flow();
+        final FlowIndex index = new FlowIndex(flow.root);
+
+        assertEquals("/", index.getGroupPath("root"));
+        assertEquals("/Ingest/Parse", index.getGroupPath("parse"));
+        assertSame(flow.nested, index.getComponent("processor-2"));
+        assertEquals("/Ingest/Parse", index.getParentPath("processor-2"));
+        assertEquals("/Ingest/Parse/GenerateFlowFile", index.getPath(flow.nested));
+        assertEquals("/GenerateFlowFile", index.getPath(flow.top));
+        assertEquals("/Ingest/Parse", index.getPath(index.getComponent("parse")));
+        assertEquals("/Ingest/Parse/out", index.getPath(flow.connection.getSource()));
+        assertEquals("/GenerateFlowFile", index.getPath(flow.connection.getDestination()));
+        assertNull(index.getComponent("unknown"));
+        assertNull(index.getParentPath("root"));
+    }
+
+    @Test
+    void testSeparatorsInNamesAreEscaped() {
+        final VersionedProcessGroup root = group("root", "Root");
+        final VersionedProcessGroup slashed = group("slashed", "Ingest/Parse");
+        final VersionedProcessGroup ingest = group("ingest", "Ingest");
+        final VersionedProcessGroup parse = group("parse", "Parse");
+        ingest.setProcessGroups(Set.of(parse));
+        root.setProcessGroups(Set.of(slashed, ingest));
+        final VersionedProcessor processor = processor("processor-1", "slashed", "Split\\Merge");
+        slashed.setProcessors(Set.of(processor));
+        final FlowIndex index = new FlowIndex(root);
+
+        assertEquals("/Ingest\\/Parse", index.getGroupPath("slashed"));
+        assertEquals("/Ingest/Parse", index.getGroupPath("parse"));
+        assertEquals("/Ingest\\/Parse/Split\\\\Merge", index.getPath(processor));
+    }
+
+    @Test
+    void testMarkdownNamesNestedComponentsByPath() {
+        final Flow flow = new Flow();
+        final FlowIndex index = new FlowIndex(flow.root);
+        final DiffResult result = new DiffResult("Test Flow", List.of(
+                new StandardFlowDifference(DifferenceType.RUN_SCHEDULE_CHANGED, flow.top, flow.top, "1 min", "5 min", "Run schedule changed"),
+                new StandardFlowDifference(DifferenceType.RUN_SCHEDULE_CHANGED, flow.nested, flow.nested, "1 min", "5 min", "Run schedule changed"),
+                new StandardFlowDifference(DifferenceType.COMPONENT_ADDED, null, flow.connection, null, flow.connection, "Connection was added")),
+                Map.of(), Map.of(), index, index, Map.of());
+
+        final StringWriter report = new StringWriter();
+        final PrintWriter out = new PrintWriter(report);
+        MarkdownRenderer.printDiff(out, result);
+        out.flush();
+        final String text = report.toString();
+        assertTrue(text.contains("- In processor `GenerateFlowFile`, the Run Schedule"));
+        assertTrue(text.contains("- In processor `/Ingest/Parse/GenerateFlowFile`, the Run Schedule"));
+        assertTrue(text.contains("from `/Ingest/Parse/out` to `GenerateFlowFile` has been added"));
+    }
+
+    private static final class Flow {
+        final VersionedProcessGroup root = group("root", "Root");
+        final VersionedProcessor top = processor("processor-1", "root", "GenerateFlowFile");
+        final VersionedProcessor nested = processor("processor-2", "parse", "GenerateFlowFile");
+        final VersionedConnection connection = new VersionedConnection();
+
+        Flow() {
+            final VersionedProcessGroup ingest = group("ingest", "Ingest");
+            final VersionedProcessGroup parse = group("parse", "Parse");
+            final VersionedPort port = new VersionedPort();
+            port.setIdentifier("port-1");
+            port.setName("out");
+            port.setGroupIdentifier("parse");
+            root.setProcessGroups(Set.of(ingest));
+            ingest.setProcessGroups(Set.of(parse));
+            root.setProcessors(Set.of(top));
+            parse.setProcessors(Set.of(nested));
+            parse.setOutputPorts(Set.of(port));
+
+            connection.setIdentifier("connection-1");
+            connection.setGroupIdentifier("root");
+            connection.setName("success");
+            connection.setSource(endpoint("port-1", "parse", "out", ConnectableComponentType.OUTPUT_PORT));
+            connection.setDestination(endpoint("processor-1", "root", "GenerateFlowFile", ConnectableComponentType.PROCESSOR));
+            root.setConnections(Set.of(connection));
+        }
+    }
+}
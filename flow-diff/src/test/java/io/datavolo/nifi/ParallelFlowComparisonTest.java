@@ -0,0 +1,77 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import static io.datavolo.nifi.TestFlows.FLOWS;
+import static io.datavolo.nifi.TestFlows.group;
+import static io.datavolo.nifi.TestFlows.processor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.apache.nifi.flow.VersionedProcessGroup;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ParallelFlowComparisonTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testParallelDiffMatchesSequentialDiff() throws IOException {
+        final FlowDiff sequential = new FlowDiff();
+        try (FlowDiff parallel = FlowDiff.builder().parallelism(4).build()) {
+            for (int i = 1; i < FLOWS.length; i++) {
+                assertEquals(describe(sequential.diff(FLOWS[i - 1], FLOWS[i]).getDifferences()),
+                        describe(parallel.diff(FLOWS[i - 1], FLOWS[i]).getDifferences()));
+            }
+        }
+    }
+
+    @Test
+    void testSplitAtEveryGroupMatchesSequentialDiff() throws IOException {
+        final VersionedProcessGroup rootA = group("root", "root", "root");
+        for (int i = 0; i < 8; i++) {
+            final VersionedProcessGroup child = group("child-" + i, "child-" + i, "root");
+            child.getProcessors().add(processor("processor-" + i, child.getIdentifier()));
+            final VersionedProcessGroup grandChild = group("grand-child-" + i, "grand-child-" + i, child.getIdentifier());
+            grandChild.getProcessors().add(processor("nested-processor-" + i, grandChild.getIdentifier()));
+            child.getProcessGroups().add(grandChild);
+            rootA.getProcessGroups().add(child);
+        }
+
+        final VersionedProcessGroup rootB = objectMapper.readValue(objectMapper.writeValueAsString(rootA), VersionedProcessGroup.class);
+        for (VersionedProcessGroup child : rootB.getProcessGroups()) {
+            if (child.getIdentifier().equals("child-1")) {
+                child.setName("renamed");
+            } else if (child.getIdentifier().equals("child-2")) {
+                child.getProcessGroups().iterator().next().getProcessors().iterator().next().getProperties().put("Property", "changed");
+            }
+        }
+        rootB.getProcessGroups().removeIf(child -> child.getIdentifier().equals("child-3"));
+        rootB.getProcessGroups().add(group("added", "added", "root"));
+
+        final List<String> expected = describe(FlowDiff.compareGroups(rootA, rootB, Set.of(), Set.of(), DifferenceFilter.ALL));
+        try (ParallelFlowComparison comparison = new ParallelFlowComparison(new ForkJoinPool(4), 0)) {
+            for (int i = 0; i < 10; i++) {
+                assertEquals(expected, describe(comparison.compare(rootA, rootB, Set.of(), Set.of(), DifferenceFilter.ALL)));
+            }
+        }
+    }
+
+    private static List<String> describe(final Set<FlowDifference> differences) {
+        return differences.stream()
+                .map(diff -> diff.getDifferenceType() + " " + diff.getFieldName().orElse("") + " " + diff.getDescription())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.nifi.flow.VersionedParameter;
+import org.apache.nifi.flow.VersionedParameterContext;
+import org.junit.jupiter.api.Test;
+
+class ParameterIndexTest {
+
+    @Test
+    void testInheritedParameters() {
+        final Map<String, VersionedParameterContext> contexts = new HashMap<>();
+        contexts.put("base", context("base", List.of(), parameter("url", "http://base", false), parameter("user", "admin", false)));
+        contexts.put("secrets", context("secrets", List.of(), parameter("user", "secret-user", true), parameter("password", "secret", true)));
+        contexts.put("app", context("app", List.of("secrets", "base"), parameter("url", "http://app", false)));
+
+        final ParameterIndex index = new ParameterIndex(contexts);
+        assertEquals("http://app", index.get("app", "url").getValue());
+        assertEquals("secret-user", index.get("app", "user").getValue());
+        assertEquals("secret", index.get("app", "password").getValue());
+        assertEquals(3, index.getParameters("app").size());
+        assertEquals("admin", index.get("base", "user").getValue());
+        assertNull(index.get("base", "password"));
+        assertNull(index.get("unknown", "url"));
+
+        assertEquals(ParameterIndex.SENSITIVE_VALUE, ParameterIndex.value(index.get("app", "password")));
+        assertEquals(new HashMap<>(Map.of("url", "http://base", "user", "admin")).toString(), index.describe("base"));
+    }
+
+    @Test
+    void testInheritanceCycle() {
+        final Map<String, VersionedParameterContext> contexts = new HashMap<>();
+        contexts.put("a", context("a", List.of("b"), parameter("x", "a", false)));
+        contexts.put("b", context("b", List.of("a"), parameter("y", "b", false)));
+
+        final ParameterIndex index = new ParameterIndex(contexts);
+        assertEquals("b", index.get("a", "y").getValue());
+        assertEquals("a", index.get("a", "x").getValue());
+        assertEquals("a", index.get("b", "x").getValue());
+        assertEquals("b", index.get("b", "y").getValue());
+    }
+
+    @Test
+    void testInheritanceCycleDoesNotDependOnOrder() {
+        final List<VersionedParameterContext> cycle = List.of(
+                context("a", List.of("b"), parameter("x", "a", false)),
+                context("b", List.of("c"), parameter("y", "b", false)),
+                context("c", List.of("a"), parameter("x", "c", false), parameter("z", "c", false)));
+
+        for (int first = 0; first < cycle.size(); first++) {
+            final Map<String, VersionedParameterContext> contexts = new LinkedHashMap<>();
+            for (int i = 0; i < cycle.size(); i++) {
+                final VersionedParameterContext context = cycle.get((first + i) % cycle.size());
+                contexts.put(context.getName(), context);
+            }
+
+            final ParameterIndex index = new ParameterIndex(contexts);
+            assertEquals(3, index.getParameters("a").size());
+            assertEquals("a", index.get("a", "x").getValue());
+            assertEquals("c", index.get("b", "x").getValue());
+            assertEquals("c", index.get("b", "z").getValue());
+            assertEquals("b", index.get("c", "y").getValue());
+            assertEquals(new HashMap<>(Map.of("x", "c", "z", "c")).toString(), index.describe("c"));
+        }
+    }
+
+    private static VersionedParameterContext context(final String name, final List<String> inherited, final VersionedParameter... parameters) {
+        final VersionedParameterContext context = new VersionedParameterContext();
+        context.setIdentifier(name);
+        context.setName(name);
+        context.setInheritedParameterContexts(inherited);
+        context.setParameters(Set.of(parameters));
+        return context;
+    }
+
+    private static VersionedParameter parameter(final String name, final String value, final boolean sensitive) {
+        final VersionedParameter parameter = new VersionedParameter();
+        parameter.setName(name);
+        parameter.setValue(value);
+        parameter.setSensitive(sensitive);
+        return parameter;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import static io.datavolo.nifi.TestFlows.FLOWS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.nifi.registry.flow.RegisteredFlowSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+class SnapshotCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    @Test
+    void testCachedSnapshotsMatchParsedSnapshots(@TempDir Path cacheDir) throws IOException {
+        final FlowDiff parsed = new FlowDiff();
+        final FlowDiff cached = FlowDiff.builder().snapshotCache(cacheDir, 64 * 1024 * 1024).build();
+
+        for (String flow : FLOWS) {
+            final RegisteredFlowSnapshot expected = parsed.load(flow).getFlowSnapshot();
+            // the first load parses and stores, the second one decodes the stored entry
+            assertSameContents(expected, cached.load(flow).getFlowSnapshot());
+            assertSameContents(expected, cached.load(flow).getFlowSnapshot());
+        }
+        for (int i = 1; i < FLOWS.length; i++) {
+            assertEquals(parsed.report(FLOWS[i - 1], FLOWS[i]), cached.report(FLOWS[i - 1], FLOWS[i]));
+        }
+    }
+
+    @Test
+    void testIdenticalContentsShareOneEntry(@TempDir Path tempDir) throws IOException {
+        final Path copy = tempDir.resolve("copy.json");
+        Files.copy(Paths.get(FLOWS[0]), copy);
+
+        final CacheDirectory directory = new CacheDirectory(tempDir.resolve("cache"), 64 * 1024 * 1024);
+        final SnapshotCache cache = new SnapshotCache(directory);
+        final FlowDiff flowDiff = new FlowDiff();
+        cache.load(Paths.get(FLOWS[0]), null, path -> flowDiff.load(path.toString()).getFlowSnapshot());
+        cache.load(copy, null, path -> flowDiff.load(path.toString()).getFlowSnapshot());
+
+        assertEquals(1, directory.getMisses());
+        assertEquals(1, directory.getHits());
+    }
+
+    private void assertSameContents(final RegisteredFlowSnapshot expected, final RegisteredFlowSnapshot actual) throws IOException {
+        assertEquals(expected.getFlow().getName(), actual.getFlow().getName());
+        assertEquals(objectMapper.writeValueAsString(expected.getFlowContents()), objectMapper.writeValueAsString(actual.getFlowContents()));
+        assertEquals(objectMapper.writeValueAsString(expected.getParameterContexts()), objectMapper.writeValueAsString(actual.getParameterContexts()));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import static io.datavolo.nifi.TestFlows.FLOWS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.nifi.flow.Bundle;
+import org.apache.nifi.flow.VersionedProcessor;
+import org.apache.nifi.flow.VersionedPropertyDescriptor;
+import org.apache.nifi.registry.flow.RegisteredFlowSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+class SnapshotDeduplicatorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    @Test
+    void testDeduplicatedSnapshotsMatchParsedSnapshots(@TempDir Path cacheDir) throws IOException {
+        final FlowDiff parsed = new FlowDiff();
+        final FlowDiff[] deduplicated = {
+            FlowDiff.builder().deduplicate(true).build(),
+            FlowDiff.builder().deduplicate(true).snapshotCache(cacheDir, 64 * 1024 * 1024).build()
+        };
+
+        for (String flow : FLOWS) {
+            final String expected = objectMapper.writeValueAsString(parsed.load(flow).getFlowSnapshot());
+            for (FlowDiff flowDiff : deduplicated) {
+                assertEquals(expected, objectMapper.writeValueAsString(flowDiff.load(flow).getFlowSnapshot()));
+                // loaded a second time from the snapshot cache when there is one
+                assertEquals(expected, objectMapper.writeValueAsString(flowDiff.load(flow).getFlowSnapshot()));
+            }
+        }
+        for (int i = 1; i < FLOWS.length; i++) {
+            assertEquals(parsed.report(FLOWS[i - 1], FLOWS[i]), deduplicated[0].report(FLOWS[i - 1], FLOWS[i]));
+        }
+    }
+
+    @Test
+    void testValuesAreSharedAcrossSnapshots() throws IOException {
+        final FlowDiff flowDiff = FlowDiff.builder().deduplicate(true).build();
+        final SnapshotDeduplicator deduplicator = flowDiff.newDeduplicator();
+        final VersionedProcessor processorA = firstProcessor(flowDiff.load(FLOWS[0], deduplicator).getFlowSnapshot());
+        final VersionedProcessor processorB = firstProcessor(flowDiff.load(FLOWS[1], deduplicator).getFlowSnapshot());
+
+        assertSame(processorA.getType(), processorB.getType());
+        assertSame(processorA.getBundle(), processorB.getBundle());
+        assertSame(processorA.getSchedulingStrategy(), processorB.getSchedulingStrategy());
+        for (String name : processorA.getProperties().keySet()) {
+            final String value = processorA.getProperties().get(name);
+            if (value != null && value.equals(processorB.getProperties().get(name))) {
+                assertSame(value, processorB.getProperties().get(name));
+            }
+        }
+    }
+
+    @Test
+    void testValuesAreNotKeptAcrossComparisons() throws IOException {
+        final FlowDiff flowDiff = FlowDiff.builder().deduplicate(true).build();
+        final VersionedProcessor processorA = firstProcessor(flowDiff.load(FLOWS[0]).getFlowSnapshot());
+        final VersionedProcessor processorB = firstProcessor(flowDiff.load(FLOWS[1]).getFlowSnapshot());
+
+        assertEquals(processorA.getBundle(), processorB.getBundle());
+        assertNotSame(processorA.getBundle(), processorB.getBundle());
+    }
+
+    @Test
+    void testSharedValuesAreNotModified() {
+        final SnapshotDeduplicator deduplicator = new SnapshotDeduplicator();
+        final Bundle bundle = new Bundle("org.apache.nifi", "nifi-standard-nar", "2.0.0");
+        final VersionedProcessor processorA = processor("a", bundle);
+        final VersionedProcessor processorB = processor("b", new Bundle("org.apache.nifi", "nifi-standard-nar", "2.0.0"));
+        deduplicator.deduplicate(processorA);
+        deduplicator.deduplicate(processorB);
+
+        assertSame(processorA.getBundle(), processorB.getBundle());
+        assertNotSame(bundle, processorA.getBundle());
+        assertSame(processorA.getAutoTerminatedRelationships(), processorB.getAutoTerminatedRelationships());
+        assertSame(processorA.getPropertyDescriptors(), processorB.getPropertyDescriptors());
+        assertThrows(UnsupportedOperationException.class, () -> processorA.getAutoTerminatedRelationships().add("failure"));
+        assertThrows(UnsupportedOperationException.class, () -> processorA.getPropertyDescriptors().clear());
+    }
+
+    private static VersionedProcessor processor(final String identifier, final Bundle bundle) {
+        final VersionedPropertyDescriptor descriptor = new VersionedPropertyDescriptor();
+        descriptor.setName("Property");
+        descriptor.setDisplayName("Property");
+        final VersionedProcessor processor = TestFlows.processor(identifier, "root");
+        processor.setBundle(bundle);
+        processor.setAutoTerminatedRelationships(new HashSet<>(Set.of("success")));
+        processor.setPropertyDescriptors(new HashMap<>(Map.of("Property", descriptor)));
+        return processor;
+    }
+
+    private static VersionedProcessor firstProcessor(final RegisteredFlowSnapshot snapshot) {
+        VersionedProcessor first = null;
+        for (VersionedProcessor processor : snapshot.getFlowContents().getProcessors()) {
+            if (first == null || processor.getIdentifier().compareTo(first.getIdentifier()) < 0) {
+                first = processor;
+            }
+        }
+        return first;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import static io.datavolo.nifi.TestFlows.processor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.apache.nifi.flow.VersionedProcessGroup;
+import org.apache.nifi.flow.VersionedProcessor;
+import org.apache.nifi.registry.flow.diff.DifferenceType;
+import org.apache.nifi.registry.flow.diff.FlowDifference;
+import org.apache.nifi.registry.flow.diff.StandardFlowDifference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SummaryRendererTest {
+
+    @Test
+    void testSectionWithinBudgetIsUnchanged() throws IOException {
+        final DiffResult result = result(3);
+        final StringWriter expected = new StringWriter();
+        final DiffRenderer markdown = DiffRenderer.forFormat(DiffRenderer.MARKDOWN);
+        markdown.start(expected);
+        markdown.render(expected, result, "v1 → v2");
+
+        final StringWriter rendered = new StringWriter();
+        final SummaryRenderer renderer = new SummaryRenderer(65536, null);
+        final DiffRenderer.Report report = renderer.start(rendered);
+        renderer.render(report, result, "v1 → v2");
+        renderer.finish(report);
+        assertEquals(expected.toString(), rendered.toString());
+    }
+
+    @Test
+    void testLargeSectionIsSummarized(@TempDir Path tempDir) throws IOException {
+        final DiffResult result = result(500);
+        final Path detailsFile = tempDir.resolve("details.md");
+        final StringWriter rendered = new StringWriter();
+        final SummaryRenderer renderer = new SummaryRenderer(4096, detailsFile);
+        final DiffRenderer.Report started = renderer.start(rendered);
+        renderer.render(started, result, null);
+        renderer.finish(started);
+
+        final String report = rendered.toString();
+        assertTrue(report.getBytes(StandardCharsets.UTF_8).length <= 4096);
+        assertTrue(report.contains("#### Summary of 1000 differences"));
+        assertTrue(report.contains("- 500 processors moved in group `/Ingest`"));
+        assertTrue(report.contains("- 500 processors with `RUN_SCHEDULE_CHANGED` in the root group"));
+        assertTrue(report.contains("#### Details"));
+        assertTrue(report.contains("more differences, see `details.md`"));
+
+        final StringWriter full = new StringWriter();
+        final PrintWriter out = new PrintWriter(full);
+        MarkdownRenderer.printBanner(out);
+        MarkdownRenderer.printDiff(out, result);
+        out.flush();
+        assertEquals(full.toString(), Files.readString(detailsFile));
+        // the temporary files of the sections are gone once they are laid out
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of(detailsFile), files.toList());
+        }
+    }
+
+    @Test
+    void testBudgetIsSharedAcrossSections(@TempDir Path tempDir) throws IOException {
+        final Path detailsFile = tempDir.resolve("details.md");
+        final SummaryRenderer renderer = new SummaryRenderer(8192, detailsFile);
+        final StringWriter rendered = new StringWriter();
+        final DiffRenderer.Report report = renderer.start(rendered);
+        // prepared out of order, as concurrent comparisons complete
+        final DiffRenderer.Section second = renderer.prepare(result(300), "v2 → v3");
+        final DiffRenderer.Section first = renderer.prepare(result(500), "v1 → v2");
+        final List<String> sections = renderer.layout(report, List.of(first, second));
+        sections.forEach(rendered::write);
+        renderer.finish(report);
+
+        assertTrue(rendered.toString().getBytes(StandardCharsets.UTF_8).length <= 8192);
+        assertTrue(sections.get(0).contains("- 500 processors moved in group `/Ingest`"));
+        assertTrue(sections.get(1).startsWith("## v2 → v3"));
+        assertTrue(sections.get(1).contains("- 300 processors moved in group `/Ingest`"));
+        assertTrue(sections.get(1).contains("- 300 processors with `RUN_SCHEDULE_CHANGED` in the root group"));
+
+        final StringWriter full = new StringWriter();
+        final PrintWriter out = new PrintWriter(full);
+        MarkdownRenderer.printBanner(out);
+        out.println("## v1 → v2");
+        MarkdownRenderer.printDiff(out, result(500));
+        out.println("## v2 → v3");
+        MarkdownRenderer.printDiff(out, result(300));
+        out.flush();
+        assertEquals(full.toString(), Files.readString(detailsFile));
+    }
+
+    @Test
+    void testEncodedSectionIsLaidOutTheSame() throws IOException {
+        final SummaryRenderer renderer = new SummaryRenderer(4096, null);
+        final DiffRenderer.Section section = renderer.prepare(result(500), "v1 → v2");
+        final DiffRenderer.Report report = new DiffRenderer.Report(new StringWriter());
+        assertEquals(renderer.layout(report, List.of(section)), renderer.layout(report, List.of(renderer.decode(renderer.encode(section)))));
+    }
+
+    @Test
+    void testDetailsFileIsNotCached(@TempDir Path tempDir) {
+        assertThrows(IllegalArgumentException.class, () -> FlowDiff.builder()
+                .resultCache(tempDir.resolve("cache"), 1024 * 1024)
+                .maxReportBytes(4096, tempDir.resolve("details.md"))
+                .build());
+    }
+
+    // the same processors moved in a child group and rescheduled in the root group
+    private static DiffResult result(final int processors) {
+        final VersionedProcessGroup root = new VersionedProcessGroup();
+        root.setIdentifier("root");
+        root.setName("Root");
+        final VersionedProcessGroup ingest = new VersionedProcessGroup();
+        ingest.setIdentifier("ingest");
+        ingest.setName("Ingest");
+        root.setProcessGroups(Set.of(ingest));
+
+        final Set<VersionedProcessor> moved = new HashSet<>();
+        final Set<VersionedProcessor> rescheduled = new HashSet<>();
+        final List<FlowDifference> differences = new ArrayList<>();
+        for (int i = 0; i < processors; i++) {
+            final VersionedProcessor inIngest = processor("moved-" + i, "ingest");
+            moved.add(inIngest);
+            differences.add(new StandardFlowDifference(DifferenceType.POSITION_CHANGED, inIngest, inIngest, null, null, "Position changed"));
+            final VersionedProcessor inRoot = processor("rescheduled-" + i, "root");
+            rescheduled.add(inRoot);
+            differences.add(new StandardFlowDifference(DifferenceType.RUN_SCHEDULE_CHANGED, inRoot, inRoot, "1 min", "5 min", "Run schedule changed"));
+        }
+        ingest.setProcessors(moved);
+        root.setProcessors(rescheduled);
+
+        final FlowIndex index = new FlowIndex(root);
+        return new DiffResult("Test Flow", differences, Map.of(), Map.of(), index, index, Map.of());
+    }
+}
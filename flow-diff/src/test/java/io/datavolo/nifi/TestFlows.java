@@ -0,0 +1,87 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.nifi.flow.ConnectableComponent;
+import org.apache.nifi.flow.ConnectableComponentType;
+import org.apache.nifi.flow.PortType;
+import org.apache.nifi.flow.Position;
+import org.apache.nifi.flow.VersionedComponent;
+import org.apache.nifi.flow.VersionedPort;
+import org.apache.nifi.flow.VersionedProcessGroup;
+import org.apache.nifi.flow.VersionedProcessor;
+
+/**
+ * Flow definitions and components shared by the tests.
+ */
+final class TestFlows {
+
+    // successive versions of the same flow
+    static final String[] FLOWS = {
+        "src/test/resources/flow_v1_initial.json",
+        "src/test/resources/flow_v2_added_component.json",
+        "src/test/resources/flow_v3_config_changes.json",
+        "src/test/resources/flow_v4_parameters.json",
+        "src/test/resources/flow_v5_property_parameter.json",
+        "src/test/resources/flow_v6_parameter_value.json"
+    };
+
+    private TestFlows() {
+    }
+
+    static VersionedProcessGroup group(final String identifier, final String name) {
+        final VersionedProcessGroup group = new VersionedProcessGroup();
+        group.setIdentifier(identifier);
+        group.setName(name);
+        group.setPosition(new Position(0, 0));
+        return group;
+    }
+
+    static VersionedProcessGroup group(final String identifier, final String name, final String groupIdentifier) {
+        final VersionedProcessGroup group = group(identifier, name);
+        group.setGroupIdentifier(groupIdentifier);
+        return group;
+    }
+
+    static VersionedProcessor processor(final String identifier, final String groupIdentifier) {
+        return processor(identifier, groupIdentifier, identifier);
+    }
+
+    static VersionedProcessor processor(final String identifier, final String groupIdentifier, final String name) {
+        final VersionedProcessor processor = new VersionedProcessor();
+        processor.setIdentifier(identifier);
+        processor.setGroupIdentifier(groupIdentifier);
+        processor.setName(name);
+        processor.setPosition(new Position(0, 0));
+        processor.setProperties(new HashMap<>(Map.of("Property", "value")));
+        processor.setPropertyDescriptors(new HashMap<>());
+        return processor;
+    }
+
+    static ConnectableComponent endpoint(final VersionedComponent component) {
+        final ConnectableComponentType type;
+        if (component instanceof VersionedPort) {
+            type = ((VersionedPort) component).getType() == PortType.INPUT_PORT
+                    ? ConnectableComponentType.INPUT_PORT : ConnectableComponentType.OUTPUT_PORT;
+        } else {
+            type = ConnectableComponentType.PROCESSOR;
+        }
+        return endpoint(component.getIdentifier(), component.getGroupIdentifier(), component.getName(), type);
+    }
+
+    static ConnectableComponent endpoint(final String identifier, final String groupIdentifier, final String name,
+            final ConnectableComponentType type) {
+        final ConnectableComponent endpoint = new ConnectableComponent();
+        endpoint.setId(identifier);
+        endpoint.setGroupId(groupIdentifier);
+        endpoint.setName(name);
+        endpoint.setType(type);
+        return endpoint;
+    }
+}
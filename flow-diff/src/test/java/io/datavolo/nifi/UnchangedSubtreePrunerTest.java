@@ -0,0 +1,116 @@
+/*
+ * SPDX-FileCopyrightText: 2024 Datavolo Inc.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.datavolo.nifi;
+
+import static io.datavolo.nifi.TestFlows.group;
+import static io.datavolo.nifi.TestFlows.processor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.apache.nifi.flow.Position;
+import org.apache.nifi.flow.VersionedProcessGroup;
+import org.apache.nifi.flow.VersionedProcessor;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class UnchangedSubtreePrunerTest {
+
+    private static final String[] FLOWS = {
+        "src/test/resources/flow_v1_initial.json",
+        "src/test/resources/flow_v2_added_component.json",
+        "src/test/resources/flow_v3_config_changes.json",
+        "src/test/resources/flow_v4_parameters.json",
+        "src/test/resources/flow_v5_property_parameter.json",
+        "src/test/resources/flow_v6_parameter_value.json"
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testPrunedDiffMatchesFullDiff() throws IOException {
+        final FlowDiff full = new FlowDiff();
+        final FlowDiff pruned = FlowDiff.builder().pruneUnchangedGroups(true).build();
+        for (String flowA : FLOWS) {
+            for (String flowB : FLOWS) {
+                assertEquals(render(full.diff(flowA, flowB)), render(pruned.diff(flowA, flowB)), flowA + " -> " + flowB);
+            }
+        }
+    }
+
+    @Test
+    void testOnlyChangedSubtreesAreKept() throws IOException {
+        final VersionedProcessGroup rootA = group("root", "root");
+        final VersionedProcessGroup unchanged = group("unchanged", "unchanged");
+        unchanged.getProcessors().add(processor("unchanged-processor", "unchanged"));
+        final VersionedProcessGroup parent = group("parent", "parent");
+        parent.getProcessors().add(processor("parent-processor", "parent"));
+        final VersionedProcessGroup child = group("child", "child");
+        child.getProcessors().add(processor("kept-processor", "child"));
+        child.getProcessors().add(processor("changed-processor", "child"));
+        parent.getProcessGroups().add(child);
+        rootA.getProcessGroups().add(unchanged);
+        rootA.getProcessGroups().add(parent);
+
+        final VersionedProcessGroup rootB = copy(rootA);
+        find(rootB, "parent", "child", "changed-processor").getProperties().put("Property", "changed");
+        final String changed = objectMapper.writeValueAsString(rootB);
+
+        final UnchangedSubtreePruner.PrunedGroups pruned = new UnchangedSubtreePruner(false).prune(rootA, rootB);
+
+        for (VersionedProcessGroup prunedRoot : new VersionedProcessGroup[] {pruned.getGroupA(), pruned.getGroupB()}) {
+            assertEquals("root", prunedRoot.getIdentifier());
+            assertEquals(1, prunedRoot.getProcessGroups().size());
+            final VersionedProcessGroup prunedParent = prunedRoot.getProcessGroups().iterator().next();
+            assertEquals("parent", prunedParent.getIdentifier());
+            assertTrue(prunedParent.getProcessors().isEmpty());
+            final VersionedProcessGroup prunedChild = prunedParent.getProcessGroups().iterator().next();
+            assertEquals(1, prunedChild.getProcessors().size());
+            assertEquals("changed-processor", prunedChild.getProcessors().iterator().next().getIdentifier());
+        }
+
+        // the snapshots themselves are left as they were
+        assertEquals(2, rootA.getProcessGroups().size());
+        assertEquals(changed, objectMapper.writeValueAsString(rootB));
+    }
+
+    @Test
+    void testIgnoreLayoutPrunesMovedComponents() throws IOException {
+        final VersionedProcessGroup rootA = group("root", "root");
+        rootA.getProcessors().add(processor("moved-processor", "root"));
+        final VersionedProcessGroup rootB = copy(rootA);
+        rootB.getProcessors().iterator().next().setPosition(new Position(100, 200));
+
+        final UnchangedSubtreePruner.PrunedGroups withLayout = new UnchangedSubtreePruner(false).prune(rootA, rootB);
+        assertEquals(1, withLayout.getGroupB().getProcessors().size());
+
+        final UnchangedSubtreePruner.PrunedGroups withoutLayout = new UnchangedSubtreePruner(true).prune(rootA, rootB);
+        assertTrue(withoutLayout.getGroupA().getProcessors().isEmpty());
+        assertTrue(withoutLayout.getGroupB().getProcessors().isEmpty());
+    }
+
+    private VersionedProcessGroup copy(final VersionedProcessGroup group) throws IOException {
+        return objectMapper.readValue(objectMapper.writeValueAsString(group), VersionedProcessGroup.class);
+    }
+
+    private static VersionedProcessor find(final VersionedProcessGroup root, final String parent, final String child, final String processor) {
+        return root.getProcessGroups().stream().filter(g -> g.getIdentifier().equals(parent)).findFirst().orElseThrow()
+                .getProcessGroups().stream().filter(g -> g.getIdentifier().equals(child)).findFirst().orElseThrow()
+                .getProcessors().stream().filter(p -> p.getIdentifier().equals(processor)).findFirst().orElseThrow();
+    }
+
+    private static String render(final DiffResult result) {
+        final StringWriter rendered = new StringWriter();
+        final PrintWriter out = new PrintWriter(rendered);
+        MarkdownRenderer.printDiff(out, result);
+        out.flush();
+        return rendered.toString();
+    }
+}
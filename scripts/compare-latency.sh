@@ -0,0 +1,44 @@
+#!/bin/sh
+# SPDX-FileCopyrightText: 2024 Datavolo Inc.
+#
+# SPDX-License-Identifier: Apache-2.0
+#
+# Compares the latency of cold CLI runs with requests to a warm diff server.
+# Usage: scripts/compare-latency.sh <flow-diff.jar> <flowA> <flowB> [runs]
+
+JAR=$1
+FLOW_A=$2
+FLOW_B=$3
+RUNS=${4:-20}
+PORT=18080
+
+now_ms() {
+    date +%s%3N
+}
+
+start=$(now_ms)
+i=0
+while [ $i -lt $RUNS ]; do
+    java -jar "$JAR" "$FLOW_A" "$FLOW_B" > /dev/null
+    i=$((i + 1))
+done
+cold=$(( ($(now_ms) - start) / RUNS ))
+
+java -jar "$JAR" --server $PORT &
+SERVER_PID=$!
+trap 'kill $SERVER_PID' EXIT
+until curl -sf "http://localhost:$PORT/health" > /dev/null; do
+    sleep 0.2
+done
+
+start=$(now_ms)
+i=0
+while [ $i -lt $RUNS ]; do
+    curl -sf -G -X POST --data-urlencode "flowA=$(realpath "$FLOW_A")" --data-urlencode "flowB=$(realpath "$FLOW_B")" \
+        -o /dev/null "http://localhost:$PORT/diff"
+    i=$((i + 1))
+done
+warm=$(( ($(now_ms) - start) / RUNS ))
+
+echo "cold CLI run:        ${cold} ms per diff"
+echo "warm server request: ${warm} ms per diff"
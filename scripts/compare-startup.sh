@@ -0,0 +1,41 @@
+#!/bin/sh
+# SPDX-FileCopyrightText: 2024 Datavolo Inc.
+#
+# SPDX-License-Identifier: Apache-2.0
+#
+# Compares the startup time and the total time of a diff for the plain jar, the jar with an AppCDS archive and,
+# when given, the native executable built with mvn package -Pnative.
+# Usage: scripts/compare-startup.sh <flow-diff.jar> <flowA> <flowB> [runs] [native executable]
+
+JAR=$1
+FLOW_A=$2
+FLOW_B=$3
+RUNS=${4:-20}
+NATIVE=$5
+ARCHIVE=$(mktemp -d)/flow-diff.jsa
+trap 'rm -rf "$(dirname "$ARCHIVE")"' EXIT
+
+now_ms() {
+    date +%s%3N
+}
+
+# average time in ms of the given command over the runs
+measure() {
+    start=$(now_ms)
+    i=0
+    while [ $i -lt $RUNS ]; do
+        "$@" > /dev/null
+        i=$((i + 1))
+    done
+    echo $(( ($(now_ms) - start) / RUNS ))
+}
+
+java -XX:ArchiveClassesAtExit="$ARCHIVE" -jar "$JAR" "$FLOW_A" "$FLOW_B" > /dev/null 2>&1
+
+printf '%-8s %12s %12s\n' "variant" "startup ms" "diff ms"
+printf '%-8s %12s %12s\n' "plain" "$(measure java -jar "$JAR" --version)" "$(measure java -jar "$JAR" "$FLOW_A" "$FLOW_B")"
+printf '%-8s %12s %12s\n' "cds" "$(measure java -XX:SharedArchiveFile="$ARCHIVE" -jar "$JAR" --version)" \
+    "$(measure java -XX:SharedArchiveFile="$ARCHIVE" -jar "$JAR" "$FLOW_A" "$FLOW_B")"
+if [ -n "$NATIVE" ]; then
+    printf '%-8s %12s %12s\n' "native" "$(measure "$NATIVE" --version)" "$(measure "$NATIVE" "$FLOW_A" "$FLOW_B")"
+fi